@@ -1,6 +1,8 @@
 package com.heavyclient;
 
+import com.heavyclient.utils.RouteCorridorIndex;
 import com.heavyclient.utils.RouteUtils;
+import com.heavyclient.utils.SharedRouteGeometry;
 
 
 import com.soap.generated.ItineraryData;
@@ -12,25 +14,65 @@ import org.jxmapviewer.viewer.GeoPosition;
 
 import javax.jms.*;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AMQNotificationListener {
 
-    private static final String BROKER_URL = "tcp://localhost:61616";
-    private static final String TOPIC_NAME = "notifications.global";
+    public static final String BROKER_URL_PROPERTY = "heavyclient.broker.url";
+    public static final String TOPIC_NAME = "notifications.global";
+    private static final String DEFAULT_BROKER_URL = "tcp://localhost:61616";
+
+    // Distance maximale (km) entre l'événement et la route pour déclencher un recalcul
+    private static final String CORRIDOR_KM_PROPERTY = "heavyclient.corridor.km";
+    private static final double DEFAULT_CORRIDOR_KM = 5.0;
+
+    // Propriétés JMS optionnelles portant la localisation de l'événement
+    private static final String LATITUDE_PROPERTY = "latitude";
+    private static final String LONGITUDE_PROPERTY = "longitude";
+    private static final String STATION_ID_PROPERTY = "stationId";
+
+    // Numéro optionnel de la notification, renvoyé à l'UI avec la route recalculée (mesures de charge)
+    public static final String SEQUENCE_PROPERTY = "sequence";
+
     private com.soap.generated.IRoutingService soapClient;
     private HeavyClientUI clientUI;
+    private SpeculativeItineraryFetcher fetcher;
+
+    private final String brokerUrl = System.getProperty(BROKER_URL_PROPERTY, DEFAULT_BROKER_URL);
+    private final double corridorMeters;
+    private volatile RouteCorridorIndex corridor;
+    // Itinéraires comparés affichés (mode --compare), null pour la route unique
+    private volatile List<ItineraryRequest> comparedRequests;
+    private final Map<String, GeoPosition> knownStations = new ConcurrentHashMap<>();
+    private final AtomicLong savedCalls = new AtomicLong();
+    private volatile SkipListener skipListener;
+
+    /**
+     * Observateur des notifications marquées d'une séquence qui n'ont produit aucune route
+     * (ignorées, hors corridor ou recalcul en échec). Les routes produites sont signalées par
+     * {@link HeavyClientUI.RouteListener} avec la même séquence.
+     */
+    public interface SkipListener {
+
+        void notificationSkipped(long sequence);
+    }
 
     public AMQNotificationListener(
             com.soap.generated.IRoutingService soapClient, HeavyClientUI clientUI
     ) {
         this.soapClient = soapClient;
         this.clientUI = clientUI;
+        this.corridorMeters = readCorridorMeters();
+        this.fetcher = new SpeculativeItineraryFetcher(soapClient);
     }
 
     public void StartListening() {
         try {
             // Create a ConnectionFactory
-            ConnectionFactory connectionFactory = new ActiveMQConnectionFactory(BROKER_URL);
+            ConnectionFactory connectionFactory = new ActiveMQConnectionFactory(brokerUrl);
 
             // Create a Connection
             Connection connection = connectionFactory.createConnection();
@@ -48,30 +90,70 @@ public class AMQNotificationListener {
             // Set a MessageListener to handle incoming messages
             consumer.setMessageListener(new MessageListener() {
                 public void onMessage(Message message) {
-                    if (message instanceof TextMessage) {
-                        try {
-                            String text = ((TextMessage) message).getText();
-                            System.out.println("Received notification: " + text);
+                    // Toute notification peut apprendre la position d'une station, même sans route affichée
+                    GeoPosition location;
+                    long sequence = HeavyClientUI.NO_SEQUENCE;
+                    try {
+                        location = locate(message);
+                        if (message.propertyExists(SEQUENCE_PROPERTY)) {
+                            sequence = message.getLongProperty(SEQUENCE_PROPERTY);
+                        }
+                    } catch (JMSException e) {
+                        e.printStackTrace();
+                        location = null;
+                    }
 
-                            if (text.contains("VÉLOS LIMITÉS")) {
-                                System.out.println("⚠️ Recalcul automatique de l’itinéraire...");
+                    boolean routeShown = false;
+                    try {
+                        if (message instanceof TextMessage) {
+                            try {
+                                String text = ((TextMessage) message).getText();
+                                System.out.println("Received notification: " + text);
 
-                                clientUI.addNotification("⚠ Recalcul en cours…");
+                                if (text.contains("VÉLOS LIMITÉS")) {
+                                    List<ItineraryRequest> compared = comparedRequests;
+                                    if (!isNearCurrentRoute(location)) {
+                                        // Un recalcul évité économise tous les appels qu'il aurait envoyés
+                                        long saved = savedCalls.addAndGet(
+                                                compared != null ? compared.size() : fetcher.callsForNextFetch());
+                                        System.out.println("Notification hors corridor, recalcul ignoré ("
+                                                + saved + " appels économisés)");
+                                        return;
+                                    }
 
-                                ItineraryResult newResult = soapClient.getItinerary(
-                                        "45.758", "4.835", "Lyon",
-                                        "48.8566", "2.3522", "Paris"
-                                );
+                                    System.out.println("⚠️ Recalcul automatique de l’itinéraire...");
 
-                                ItineraryData newData = newResult.getData().getValue();
-                                List<GeoPosition> newRoute = RouteUtils.extractRoute(newData);
+                                    clientUI.addNotification("⚠ Recalcul en cours…");
 
-                                clientUI.showRoute(newRoute);
-                                // on peut réappler le Routing Server SOAP ici pour recalculer l'itinéraire
-                            }
+                                    if (compared != null) {
+                                        routeShown = recalculateComparison(compared, sequence);
+                                        return;
+                                    }
+
+                                    ItineraryResult newResult = fetcher.fetch(ItineraryRequest.LYON_PARIS);
+
+                                    ItineraryData newData = newResult.getData().getValue();
+                                    List<GeoPosition> newRoute = RouteUtils.extractRoute(newData);
 
-                        } catch (JMSException e) {
-                            e.printStackTrace();
+                                    clientUI.showRoute(newRoute, sequence);
+                                    routeShown = true;
+                                    updateRoute(newRoute);
+                                    // on peut réappler le Routing Server SOAP ici pour recalculer l'itinéraire
+                                }
+
+                            } catch (JMSException e) {
+                                e.printStackTrace();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            } catch (ExecutionException e) {
+                                System.err.println("Recalcul impossible: " + e.getCause());
+                                clientUI.addNotification("⚠ Recalcul impossible");
+                            }
+                        }
+                    } finally {
+                        SkipListener listener = skipListener;
+                        if (!routeShown && sequence != HeavyClientUI.NO_SEQUENCE && listener != null) {
+                            listener.notificationSkipped(sequence);
                         }
                     }
                 }
@@ -83,4 +165,139 @@ public class AMQNotificationListener {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Reconstruit l'index du corridor à partir de la route affichée
+     */
+    public void updateRoute(List<GeoPosition> route) {
+        comparedRequests = null;
+        corridor = route == null || route.isEmpty() ? null : new RouteCorridorIndex(route, corridorMeters);
+    }
+
+    /**
+     * Passe en mode comparaison : le corridor couvre toutes les routes comparées,
+     * et un recalcul refait la comparaison complète au lieu de la seule route Lyon → Paris
+     *
+     * @param requests itinéraires comparés, y compris ceux qui ont échoué cette fois
+     * @param geometry géométrie des routes affichées
+     */
+    public void updateComparison(List<ItineraryRequest> requests, SharedRouteGeometry geometry) {
+        comparedRequests = List.copyOf(requests);
+        corridor = geometry.getPieces().isEmpty() ? null
+                : RouteCorridorIndex.ofRoutes(geometry.getPieces(), corridorMeters);
+    }
+
+    /**
+     * Définit l'observateur des notifications sans route, ou null pour le retirer
+     */
+    public void setSkipListener(SkipListener listener) {
+        this.skipListener = listener;
+    }
+
+    /**
+     * Libère le pool des recalculs spéculatifs, à appeler à l'arrêt du client
+     */
+    public void shutdown() {
+        fetcher.shutdown();
+    }
+
+    /**
+     * Latences des recalculs spéculatifs comparées à la requête unique
+     */
+    public String getLatencyReport() {
+        return fetcher.latencyReport();
+    }
+
+    /**
+     * Nombre d'appels getItinerary évités grâce au filtrage par corridor
+     */
+    public long getSavedCalls() {
+        return savedCalls.get();
+    }
+
+    /**
+     * @return true si les routes comparées ont été redessinées
+     */
+    private boolean recalculateComparison(List<ItineraryRequest> requests, long sequence) {
+        ItineraryComparison comparison = new ItineraryComparison(soapClient, requests);
+        SharedRouteGeometry geometry = comparison.fetch();
+        if (comparison.getSucceeded().isEmpty()) {
+            System.err.println("Recalcul impossible: aucun itinéraire comparé n'a abouti");
+            clientUI.addNotification("⚠ Recalcul impossible");
+            return false;
+        }
+
+        clientUI.drawRoutes(geometry, sequence);
+        updateComparison(requests, geometry);
+        return true;
+    }
+
+    /**
+     * Vérifie si l'événement concerne la route courante.
+     * Sans route ou sans localisation exploitable, on recalcule par précaution.
+     */
+    private boolean isNearCurrentRoute(GeoPosition location) {
+        RouteCorridorIndex index = corridor;
+        if (index == null || location == null) {
+            return true;
+        }
+
+        return index.contains(location.getLatitude(), location.getLongitude());
+    }
+
+    /**
+     * Extrait la position de l'événement depuis les propriétés du message.
+     * Une station déjà vue avec ses coordonnées peut ensuite être référencée par son seul identifiant.
+     * Des coordonnées non finies ou hors limites comptent comme absentes : elles ne sont pas mémorisées.
+     */
+    private GeoPosition locate(Message message) throws JMSException {
+        String stationId = message.propertyExists(STATION_ID_PROPERTY)
+                ? message.getStringProperty(STATION_ID_PROPERTY) : null;
+
+        Double lat = readDouble(message, LATITUDE_PROPERTY, 90);
+        Double lon = readDouble(message, LONGITUDE_PROPERTY, 180);
+        if (lat != null && lon != null) {
+            GeoPosition position = new GeoPosition(lat, lon);
+            if (stationId != null) {
+                knownStations.put(stationId, position);
+            }
+            return position;
+        }
+
+        return stationId != null ? knownStations.get(stationId) : null;
+    }
+
+    /**
+     * Lit la largeur du corridor une seule fois, au démarrage, pour échouer tôt sur une valeur invalide
+     */
+    private static double readCorridorMeters() {
+        String value = System.getProperty(CORRIDOR_KM_PROPERTY, String.valueOf(DEFAULT_CORRIDOR_KM));
+        double km;
+        try {
+            km = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(CORRIDOR_KM_PROPERTY + " must be a number of kilometres: " + value, e);
+        }
+        if (!(km > 0) || Double.isInfinite(km)) {
+            throw new IllegalArgumentException(CORRIDOR_KM_PROPERTY + " must be a positive number of kilometres: " + value);
+        }
+        return km * 1000;
+    }
+
+    /**
+     * Lit une coordonnée en degrés ; null si absente, illisible, non finie ou hors de [-limit, limit]
+     */
+    private Double readDouble(Message message, String name, double limit) throws JMSException {
+        if (!message.propertyExists(name)) {
+            return null;
+        }
+        double value;
+        try {
+            value = Double.parseDouble(String.valueOf(message.getObjectProperty(name)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        // NaN échoue aussi à ce test
+        return Math.abs(value) <= limit ? value : null;
+    }
 }
@@ -1,20 +1,28 @@
 package com.heavyclient;
 
 import com.heavyclient.utils.CustomWaypointRenderer;
+import com.heavyclient.utils.MapRepaintScheduler;
+import com.heavyclient.utils.QuantizedRoute;
 import com.heavyclient.utils.RoutePainter;
+import com.heavyclient.utils.SharedRouteGeometry;
+import com.heavyclient.utils.SharedRoutePainter;
 import org.jxmapviewer.JXMapViewer;
 import org.jxmapviewer.cache.FileBasedLocalCache;
+import org.jxmapviewer.input.PanMouseInputListener;
+import org.jxmapviewer.input.ZoomMouseWheelListenerCursor;
 import org.jxmapviewer.painter.CompoundPainter;
 import org.jxmapviewer.painter.Painter;
 import org.jxmapviewer.viewer.*;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Main UI component for the Heavy Client application.
@@ -29,10 +37,39 @@ public class HeavyClientUI extends JFrame {
     private static final int WINDOW_WIDTH = 900;
     private static final int WINDOW_HEIGHT = 700;
     private static final int NOTIFICATION_HEIGHT = 150;
+    private static final int TARGET_FPS = 30;
+
+    /**
+     * Sequence passed to the route listener when the route was not drawn for a tagged notification.
+     */
+    public static final long NO_SEQUENCE = -1;
+    private static final List<Color> COMPARISON_COLORS = List.of(
+            new Color(0, 160, 0), new Color(230, 120, 0), new Color(150, 0, 200), new Color(0, 170, 200)
+    );
 
     private JXMapViewer mapViewer;
+    private MapRepaintScheduler repaintScheduler;
     private JTextArea notificationArea;
 
+    private final AtomicLong routeVersion = new AtomicLong();
+    private volatile long lastPaintedVersion;
+    private volatile RouteListener routeListener;
+
+    /**
+     * Observer notified when a route is handed to the map and when it is first painted.
+     * Versions increase by one for each call to {@link #drawRoute(List, long)} or {@link #drawRoutes(SharedRouteGeometry, long)}.
+     */
+    public interface RouteListener {
+
+        /**
+         * @param version  version of the route now set on the map
+         * @param sequence sequence given by the caller of {@link #showRoute(List, long)}, or {@link #NO_SEQUENCE}
+         */
+        void routeDrawn(long version, long sequence);
+
+        void routePainted(long version);
+    }
+
     /**
      * Constructs the main UI window with map and notification components.
      */
@@ -82,8 +119,25 @@ public class HeavyClientUI extends JFrame {
         }
 
         // === 3) Create the map viewer ===
-        mapViewer = new JXMapViewer();
+        // Every repaint goes through the scheduler, which merges them into capped frames.
+        // Repaints are background work unless they come from the pan/zoom listeners below.
+        mapViewer = new JXMapViewer() {
+            @Override
+            public void repaint(long tm, int x, int y, int width, int height) {
+                if (repaintScheduler != null) {
+                    repaintScheduler.requestRepaint(new Rectangle(x, y, width, height));
+                } else {
+                    super.repaint(tm, x, y, width, height);
+                }
+            }
+        };
         mapViewer.setTileFactory(tileFactory);
+        repaintScheduler = new MapRepaintScheduler(mapViewer, TARGET_FPS);
+
+        MouseAdapter panListener = repaintScheduler.interactive(new PanMouseInputListener(mapViewer));
+        mapViewer.addMouseListener(panListener);
+        mapViewer.addMouseMotionListener(panListener);
+        mapViewer.addMouseWheelListener(repaintScheduler.interactive(new ZoomMouseWheelListenerCursor(mapViewer)));
 
         // === 4) Initial center and zoom ===
         GeoPosition start = new GeoPosition(45.758, 4.835); // Lyon
@@ -179,7 +233,35 @@ public class HeavyClientUI extends JFrame {
      * @param positions list of GPS positions representing the route
      */
     public void showRoute(List<GeoPosition> positions) {
-        drawRoute(positions);
+        drawRoute(positions, NO_SEQUENCE);
+    }
+
+    /**
+     * Displays a route recalculated for a tagged notification.
+     *
+     * @param positions list of GPS positions representing the route
+     * @param sequence  sequence of the notification, reported to the route listener
+     */
+    public void showRoute(List<GeoPosition> positions, long sequence) {
+        drawRoute(positions, sequence);
+    }
+
+    /**
+     * Sets the observer of route updates, or null to remove it.
+     *
+     * @param listener the observer to notify
+     */
+    public void setRouteListener(RouteListener listener) {
+        this.routeListener = listener;
+    }
+
+    /**
+     * Returns frame statistics of the map repaint scheduler.
+     *
+     * @return a one-line summary of painted frames and frame times
+     */
+    public String getFrameReport() {
+        return repaintScheduler.frameReport();
     }
 
     /**
@@ -196,6 +278,16 @@ public class HeavyClientUI extends JFrame {
      * @param positions list of GPS positions representing the route
      */
     public void drawRoute(List<GeoPosition> positions) {
+        drawRoute(positions, NO_SEQUENCE);
+    }
+
+    /**
+     * Draws a route on the map and reports the given sequence to the route listener.
+     *
+     * @param positions list of GPS positions representing the route
+     * @param sequence  sequence of the notification that triggered the route, or {@link #NO_SEQUENCE}
+     */
+    public void drawRoute(List<GeoPosition> positions, long sequence) {
         if (positions == null || positions.isEmpty()) {
             return;
         }
@@ -209,6 +301,62 @@ public class HeavyClientUI extends JFrame {
             waypoints.add(new DefaultWaypoint(positions.get(positions.size() - 1)));
         }
 
+        showOverlay(routePainter, waypoints, new HashSet<>(positions), sequence);
+        addNotification("Route displayed: " + positions.size() + " points");
+    }
+
+    /**
+     * Draws several compared routes, painting their shared segments only once.
+     * Each route gets its own color and waypoint markers at its start and end positions.
+     *
+     * @param geometry deduplicated geometry of the compared routes
+     */
+    public void drawRoutes(SharedRouteGeometry geometry) {
+        drawRoutes(geometry, NO_SEQUENCE);
+    }
+
+    /**
+     * Draws several compared routes and reports the given sequence to the route listener.
+     *
+     * @param geometry deduplicated geometry of the compared routes
+     * @param sequence sequence of the notification that triggered the routes, or {@link #NO_SEQUENCE}
+     */
+    public void drawRoutes(SharedRouteGeometry geometry, long sequence) {
+        if (geometry == null || geometry.getPieces().isEmpty()) {
+            return;
+        }
+
+        SharedRoutePainter routesPainter = new SharedRoutePainter(geometry, COMPARISON_COLORS);
+
+        Set<Waypoint> waypoints = new HashSet<>();
+        for (int r = 0; r < geometry.getRouteCount(); r++) {
+            List<Integer> routePieces = geometry.getRoutePieces(r);
+            if (routePieces.isEmpty()) continue;
+
+            QuantizedRoute first = geometry.getPieces().get(routePieces.get(0));
+            QuantizedRoute last = geometry.getPieces().get(routePieces.get(routePieces.size() - 1));
+            waypoints.add(new DefaultWaypoint(first.get(0)));
+            waypoints.add(new DefaultWaypoint(last.get(last.size() - 1)));
+        }
+
+        Set<GeoPosition> fitPositions = new HashSet<>();
+        for (QuantizedRoute piece : geometry.getPieces()) {
+            fitPositions.addAll(piece);
+        }
+
+        showOverlay(routesPainter, waypoints, fitPositions, sequence);
+        addNotification("Routes displayed: " + geometry.getRouteCount() + " routes, "
+                + geometry.getStoredVertices() + " unique points");
+    }
+
+    /**
+     * Replaces the map overlay with the given route painter and waypoint markers, then zooms to fit.
+     * While the user pans or zooms, the change is held back until the interaction ends.
+     */
+    private void showOverlay(Painter<JXMapViewer> routesPainter, Set<Waypoint> waypoints, Set<GeoPosition> fitPositions,
+                             long sequence) {
+        long version = routeVersion.incrementAndGet();
+
         WaypointPainter<Waypoint> waypointPainter = new WaypointPainter<>();
         waypointPainter.setWaypoints(waypoints);
 
@@ -219,14 +367,34 @@ public class HeavyClientUI extends JFrame {
         waypointPainter.setRenderer(renderer);
 
         List<Painter<JXMapViewer>> painters = new ArrayList<>();
-        painters.add(routePainter);
+        painters.add(routesPainter);
         painters.add(waypointPainter);
+        painters.add((g, map, w, h) -> routePainted(version));
 
         CompoundPainter<JXMapViewer> compoundPainter = new CompoundPainter<>(painters);
-        mapViewer.setOverlayPainter(compoundPainter);
-        mapViewer.zoomToBestFit(new HashSet<>(positions), 0.7);
+        repaintScheduler.runWhenIdle(() -> {
+            mapViewer.setOverlayPainter(compoundPainter);
+            mapViewer.zoomToBestFit(fitPositions, 0.7);
 
-        addNotification("Route displayed: " + positions.size() + " points");
-        repaint();
+            RouteListener listener = routeListener;
+            if (listener != null) {
+                listener.routeDrawn(version, sequence);
+            }
+        });
+    }
+
+    /**
+     * Reports the first paint of each route version to the route listener.
+     */
+    private void routePainted(long version) {
+        if (version <= lastPaintedVersion) {
+            return;
+        }
+        lastPaintedVersion = version;
+
+        RouteListener listener = routeListener;
+        if (listener != null) {
+            listener.routePainted(version);
+        }
     }
 }
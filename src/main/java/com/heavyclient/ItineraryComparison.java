@@ -0,0 +1,77 @@
+package com.heavyclient;
+
+import com.heavyclient.utils.QuantizedRoute;
+import com.heavyclient.utils.RouteUtils;
+import com.heavyclient.utils.SharedRouteGeometry;
+import com.soap.generated.IRoutingService;
+import com.soap.generated.ItineraryResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compare plusieurs itinéraires (une origine vers plusieurs destinations, ou l'inverse)
+ * Les requêtes partent en parallèle et les géométries sont regroupées dans une {@link SharedRouteGeometry}
+ */
+public class ItineraryComparison {
+
+    private static final int MAX_THREADS = 4;
+
+    private final IRoutingService client;
+    private final List<ItineraryRequest> requests;
+    private final List<ItineraryRequest> succeeded = new ArrayList<>();
+
+    public ItineraryComparison(IRoutingService client, List<ItineraryRequest> requests) {
+        this.client = client;
+        this.requests = requests;
+    }
+
+    /**
+     * Récupère tous les itinéraires en parallèle ; ceux en erreur sont ignorés
+     */
+    public SharedRouteGeometry fetch() {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(requests.size(), MAX_THREADS)));
+        try {
+            List<CompletableFuture<ItineraryResult>> futures = new ArrayList<>();
+            for (ItineraryRequest request : requests) {
+                futures.add(CompletableFuture.supplyAsync(() -> request.call(client), pool));
+            }
+
+            List<QuantizedRoute> routes = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                ItineraryRequest request = requests.get(i);
+                try {
+                    ItineraryResult result = futures.get(i).join();
+                    if (result == null || !Boolean.TRUE.equals(result.isSuccess())
+                            || result.getData() == null || result.getData().getValue() == null) {
+                        System.err.println("[ERROR] No itinerary for " + describe(request));
+                        continue;
+                    }
+
+                    routes.add(QuantizedRoute.of(RouteUtils.extractRoute(result.getData().getValue())));
+                    succeeded.add(request);
+                } catch (Exception e) {
+                    System.err.println("[ERROR] Itinerary " + describe(request) + " failed: " + e.getMessage());
+                }
+            }
+
+            return new SharedRouteGeometry(routes);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Requêtes ayant abouti, dans l'ordre des routes de la géométrie
+     */
+    public List<ItineraryRequest> getSucceeded() {
+        return succeeded;
+    }
+
+    public static String describe(ItineraryRequest request) {
+        return request.originCity() + " → " + request.destCity();
+    }
+}
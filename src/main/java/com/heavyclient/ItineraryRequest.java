@@ -0,0 +1,43 @@
+package com.heavyclient;
+
+import com.soap.generated.IRoutingService;
+import com.soap.generated.ItineraryResult;
+
+import java.util.Locale;
+
+/**
+ * Paramètres d'une requête GetItinerary
+ */
+public record ItineraryRequest(double originLat, double originLon, String originCity,
+                               double destLat, double destLon, String destCity) {
+
+    /**
+     * Itinéraire affiché par défaut (Lyon → Paris)
+     */
+    public static final ItineraryRequest LYON_PARIS =
+            new ItineraryRequest(45.758, 4.835, "Lyon", 48.8566, 2.3522, "Paris");
+
+    /**
+     * Variante avec origine et destination décalées de quelques mètres (autre point d'accroche)
+     */
+    public ItineraryRequest shifted(double originDelta, double destDelta) {
+        return new ItineraryRequest(
+                originLat + originDelta, originLon + originDelta, originCity,
+                destLat + destDelta, destLon + destDelta, destCity
+        );
+    }
+
+    /**
+     * Appelle le service SOAP avec ces paramètres
+     */
+    public ItineraryResult call(IRoutingService client) {
+        return client.getItinerary(
+                format(originLat), format(originLon), originCity,
+                format(destLat), format(destLon), destCity
+        );
+    }
+
+    private static String format(double degrees) {
+        return String.format(Locale.ROOT, "%.6f", degrees);
+    }
+}
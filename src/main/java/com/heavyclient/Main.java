@@ -1,10 +1,12 @@
 package com.heavyclient;
 
 import com.heavyclient.utils.RouteUtils;
+import com.heavyclient.utils.SharedRouteGeometry;
 import com.soap.generated.*;
 import jakarta.xml.bind.JAXBElement;
 import org.jxmapviewer.viewer.GeoPosition;
 
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -15,10 +17,34 @@ import java.util.List;
 public class Main {
 
     private static final String SEPARATOR = "=".repeat(60);
+    private static final String COMPARE_FLAG = "--compare";
+    private static final String COMPARE_USAGE =
+            "Usage: --compare [originLat,originLon,originCity:destLat,destLon,destCity ...]\n"
+                    + "  e.g. --compare 45.758,4.835,Lyon:48.8566,2.3522,Paris 45.758,4.835,Lyon:43.2965,5.3698,Marseille";
+
+    // Comparaison par défaut : une origine (Lyon) vers plusieurs destinations
+    private static final List<ItineraryRequest> DEFAULT_COMPARISON = List.of(
+            ItineraryRequest.LYON_PARIS,
+            new ItineraryRequest(45.758, 4.835, "Lyon", 43.2965, 5.3698, "Marseille"),
+            new ItineraryRequest(45.758, 4.835, "Lyon", 45.1885, 5.7245, "Grenoble")
+    );
     private static HeavyClientUI ui;
+    private static AMQNotificationListener listener;
 
     public static void main(String[] args) {
 
+        // Arguments validés avant d'ouvrir la fenêtre et de se connecter au broker
+        List<ItineraryRequest> comparison = null;
+        if (args.length > 0 && COMPARE_FLAG.equals(args[0])) {
+            try {
+                comparison = parseComparison(args);
+            } catch (IllegalArgumentException e) {
+                error(e.getMessage());
+                System.err.println(COMPARE_USAGE);
+                System.exit(2);
+            }
+        }
+
         // Configure User-Agent for OSM tile requests BEFORE creating any UI
         // This must be set early to comply with OSM Tile Usage Policy
         System.setProperty("http.agent", "HeavyClient/1.0 (Java Educational Project; Contact: your-email@example.com)");
@@ -34,15 +60,19 @@ public class Main {
         printHeader();
         IRoutingService client = initializeService();
 
-        AMQNotificationListener listener = new AMQNotificationListener(client, ui);
+        listener = new AMQNotificationListener(client, ui);
         listener.StartListening();
 
         try {
-            ItineraryResult result = requestItinerary(client);
-
-            if (isValidResult(result)) {
-                displayResults(result);
-                log("Process completed successfully");
+            if (comparison != null) {
+                compareItineraries(client, comparison);
+            } else {
+                ItineraryResult result = requestItinerary(client);
+
+                if (isValidResult(result)) {
+                    displayResults(result);
+                    log("Process completed successfully");
+                }
             }
 
         } catch (Exception e) {
@@ -54,6 +84,10 @@ public class Main {
         System.out.println("Client lourd en écoute... Appuyez sur Entrée pour quitter.");
         new java.util.Scanner(System.in).nextLine();
 
+        System.out.println("Appels getItinerary évités (hors corridor): " + listener.getSavedCalls());
+        System.out.println(listener.getLatencyReport());
+        System.out.println(ui.getFrameReport());
+        listener.shutdown();
         System.out.println("Client Lourd eteint.");
 
     }
@@ -72,10 +106,11 @@ public class Main {
      */
     private static IRoutingService initializeService() {
         log("Initializing SOAP service...");
-        RoutingService service = new RoutingService();
+        RoutingClientFactory.Options options = RoutingClientFactory.Options.fromSystemProperties();
 
-        log("Getting service port...");
-        IRoutingService client = service.getBasicHttpBindingIRoutingService();
+        log("Getting service port (gzip=" + options.gzip() + ", fastInfoset=" + options.fastInfoset()
+                + ", mtom=" + options.mtom() + ")...");
+        IRoutingService client = RoutingClientFactory.create(options);
 
         log("Service initialized successfully");
         return client;
@@ -106,6 +141,85 @@ public class Main {
         return result;
     }
 
+    /**
+     * Lit les itinéraires à comparer : "lat,lon,ville:lat,lon,ville" par argument après --compare
+     *
+     * @throws IllegalArgumentException si un argument ne respecte pas ce format
+     */
+    private static List<ItineraryRequest> parseComparison(String[] args) {
+        if (args.length < 2) {
+            return DEFAULT_COMPARISON;
+        }
+
+        List<ItineraryRequest> requests = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] ends = args[i].split(":", -1);
+            if (ends.length != 2) {
+                throw new IllegalArgumentException("Invalid itinerary '" + args[i] + "': expected origin:destination");
+            }
+            String[] origin = parsePlace(args[i], ends[0]);
+            String[] dest = parsePlace(args[i], ends[1]);
+            requests.add(new ItineraryRequest(
+                    parseCoordinate(args[i], origin[0], 90), parseCoordinate(args[i], origin[1], 180), origin[2],
+                    parseCoordinate(args[i], dest[0], 90), parseCoordinate(args[i], dest[1], 180), dest[2]
+            ));
+        }
+        return requests;
+    }
+
+    private static String[] parsePlace(String arg, String place) {
+        String[] parts = place.split(",", -1);
+        if (parts.length != 3 || parts[2].isBlank()) {
+            throw new IllegalArgumentException("Invalid place '" + place + "' in '" + arg + "': expected lat,lon,city");
+        }
+        return parts;
+    }
+
+    private static double parseCoordinate(String arg, String value, double limit) {
+        double coordinate;
+        try {
+            coordinate = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid coordinate '" + value + "' in '" + arg + "'");
+        }
+        if (!(Math.abs(coordinate) <= limit)) {
+            throw new IllegalArgumentException("Coordinate " + value + " out of range in '" + arg + "'");
+        }
+        return coordinate;
+    }
+
+    /**
+     * Récupère plusieurs itinéraires en parallèle et les affiche avec leurs portions communes fusionnées
+     */
+    private static void compareItineraries(IRoutingService client, List<ItineraryRequest> requests) {
+        log("Comparing " + requests.size() + " itineraries...");
+        ItineraryComparison comparison = new ItineraryComparison(client, requests);
+        SharedRouteGeometry geometry = comparison.fetch();
+
+        System.out.println("\n" + SEPARATOR);
+        System.out.println("ITINERARY COMPARISON");
+        System.out.println(SEPARATOR);
+
+        List<ItineraryRequest> succeeded = comparison.getSucceeded();
+        for (int r = 0; r < succeeded.size(); r++) {
+            int shared = 0;
+            for (int piece : geometry.getRoutePieces(r)) {
+                if (geometry.getUsage(piece) > 1) shared++;
+            }
+            System.out.println("  " + ItineraryComparison.describe(succeeded.get(r))
+                    + ": " + geometry.getRoutePieces(r).size() + " segments (" + shared + " shared)");
+        }
+
+        System.out.println("Stored points: " + geometry.getStoredVertices() + " / " + geometry.getTotalVertices()
+                + " (" + geometry.sizeInBytes() / 1024 + " KB)");
+        System.out.println(SEPARATOR);
+
+        ui.drawRoutes(geometry);
+        if (listener != null) {
+            listener.updateComparison(requests, geometry);
+        }
+    }
+
     /**
      * Vérifie si le résultat est valide
      */
@@ -144,6 +258,9 @@ public class Main {
         System.out.println("ITINERARY RESULTS");
         System.out.println(SEPARATOR);
         ui.drawRoute(routePositions);
+        if (listener != null) {
+            listener.updateRoute(routePositions);
+        }
         displaySummary(data);
         displaySteps(data);
 
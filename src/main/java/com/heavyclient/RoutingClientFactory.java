@@ -0,0 +1,252 @@
+package com.heavyclient;
+
+import com.soap.generated.IRoutingService;
+import com.soap.generated.RoutingService;
+import com.sun.xml.ws.client.ClientTransportException;
+import com.sun.xml.ws.client.ContentNegotiation;
+import jakarta.xml.ws.BindingProvider;
+import jakarta.xml.ws.WebServiceException;
+import jakarta.xml.ws.WebServiceFeature;
+import jakarta.xml.ws.handler.MessageContext;
+import jakarta.xml.ws.soap.MTOMFeature;
+import jakarta.xml.ws.soap.SOAPFaultException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fabrique du port SOAP {@link IRoutingService}
+ * Active au besoin la compression gzip, la négociation Fast Infoset et MTOM,
+ * avec repli automatique sur un port standard si le serveur les refuse
+ */
+public class RoutingClientFactory {
+
+    public static final String ENDPOINT_PROPERTY = "heavyclient.soap.endpoint";
+    public static final String GZIP_PROPERTY = "heavyclient.soap.gzip";
+    public static final String GZIP_REQUESTS_PROPERTY = "heavyclient.soap.gzip.requests";
+    public static final String FAST_INFOSET_PROPERTY = "heavyclient.soap.fastinfoset";
+    public static final String MTOM_PROPERTY = "heavyclient.soap.mtom";
+
+    /**
+     * Options de transport du port SOAP
+     *
+     * @param endpoint     adresse du service, ou null pour celle du WSDL
+     * @param gzip         accepte les réponses gzip (le serveur reste libre de l'ignorer)
+     * @param gzipRequests compresse aussi les requêtes, à réserver aux serveurs qui les décodent
+     * @param fastInfoset  négocie l'encodage binaire Fast Infoset
+     * @param mtom         active MTOM pour les pièces jointes binaires
+     */
+    public record Options(String endpoint, boolean gzip, boolean gzipRequests, boolean fastInfoset, boolean mtom) {
+
+        public static Options plain(String endpoint) {
+            return new Options(endpoint, false, false, false, false);
+        }
+
+        public static Options fromSystemProperties() {
+            return new Options(
+                    System.getProperty(ENDPOINT_PROPERTY),
+                    Boolean.parseBoolean(System.getProperty(GZIP_PROPERTY, "true")),
+                    Boolean.parseBoolean(System.getProperty(GZIP_REQUESTS_PROPERTY, "false")),
+                    Boolean.parseBoolean(System.getProperty(FAST_INFOSET_PROPERTY, "true")),
+                    Boolean.parseBoolean(System.getProperty(MTOM_PROPERTY, "false"))
+            );
+        }
+
+        boolean isOptimized() {
+            return gzip || gzipRequests || fastInfoset || mtom;
+        }
+
+        /**
+         * Options de repli après un refus du serveur : on retire d'abord ce qui touche à l'encodage de la requête
+         * (compression, Fast Infoset, MTOM) en gardant les réponses gzip, puis tout. Null s'il ne reste rien à retirer.
+         */
+        Options degraded() {
+            if ((gzipRequests || fastInfoset || mtom) && gzip) {
+                return new Options(endpoint, true, false, false, false);
+            }
+            return isOptimized() ? plain(endpoint) : null;
+        }
+
+        String describe() {
+            if (!isOptimized()) {
+                return "plain XML";
+            }
+            List<String> parts = new ArrayList<>();
+            if (gzip) parts.add("gzip responses");
+            if (gzipRequests) parts.add("gzip requests");
+            if (fastInfoset) parts.add("Fast Infoset");
+            if (mtom) parts.add("MTOM");
+            return String.join(", ", parts);
+        }
+    }
+
+    /**
+     * Crée le port configuré par les propriétés système
+     */
+    public static IRoutingService create() {
+        return create(Options.fromSystemProperties());
+    }
+
+    /**
+     * Crée le port avec les options données.
+     * Si une option est active, le port retombe sur un transport standard dès qu'un appel échoue à cause d'elle.
+     */
+    public static IRoutingService create(Options options) {
+        if (!options.isOptimized()) {
+            return createPort(options);
+        }
+
+        IRoutingService optimized = createPort(options);
+        return (IRoutingService) Proxy.newProxyInstance(
+                IRoutingService.class.getClassLoader(),
+                new Class<?>[]{IRoutingService.class},
+                new FallbackHandler(optimized, options)
+        );
+    }
+
+    /**
+     * Crée un port JAX-WS brut avec les fonctionnalités demandées
+     */
+    private static IRoutingService createPort(Options options) {
+        WebServiceFeature[] features = {new MTOMFeature(options.mtom())};
+
+        IRoutingService port;
+        if (options.endpoint() == null) {
+            port = new RoutingService().getBasicHttpBindingIRoutingService(features);
+        } else {
+            // Le WSDL est lu sur le endpoint choisi plutôt que sur l'adresse figée à la génération
+            port = new RoutingService(wsdlUrl(options.endpoint())).getBasicHttpBindingIRoutingService(features);
+        }
+
+        Map<String, Object> context = ((BindingProvider) port).getRequestContext();
+        if (options.endpoint() != null) {
+            context.put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, options.endpoint());
+        }
+
+        // Le runtime JAX-WS décompresse la réponse et compresse la requête selon ces en-têtes
+        Map<String, List<String>> headers = new HashMap<>();
+        if (options.gzip()) {
+            headers.put("Accept-Encoding", List.of("gzip"));
+        }
+        if (options.gzipRequests()) {
+            headers.put("Content-Encoding", List.of("gzip"));
+        }
+        if (!headers.isEmpty()) {
+            context.put(MessageContext.HTTP_REQUEST_HEADERS, headers);
+        }
+
+        if (options.fastInfoset()) {
+            // Pessimiste : première requête en XML, Fast Infoset seulement si le serveur répond ainsi
+            context.put(ContentNegotiation.PROPERTY, ContentNegotiation.pessimistic.name());
+        }
+
+        return port;
+    }
+
+    private static URL wsdlUrl(String endpoint) {
+        try {
+            return new URL(endpoint + "?wsdl");
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid SOAP endpoint: " + endpoint, e);
+        }
+    }
+
+    /**
+     * Délègue au port optimisé. Si le serveur rejette un appel par un statut HTTP (400, 415, 5xx),
+     * bascule définitivement sur des options réduites (voir {@link Options#degraded()}) qu'il accepte.
+     */
+    private static class FallbackHandler implements InvocationHandler {
+
+        private volatile IRoutingService delegate;
+        private volatile Options current;
+
+        FallbackHandler(IRoutingService optimized, Options options) {
+            this.delegate = optimized;
+            this.current = options;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(this, args);
+            }
+
+            try {
+                return invokeOn(delegate, method, args);
+            } catch (SOAPFaultException e) {
+                // Erreur applicative du service : rien à voir avec le transport
+                throw e;
+            } catch (WebServiceException e) {
+                // Connexion refusée, délai dépassé... : d'autres options n'y changeraient rien
+                if (!isRejectedByServer(e)) {
+                    throw e;
+                }
+                return retryDegraded(method, args, e);
+            }
+        }
+
+        private Object retryDegraded(Method method, Object[] args, WebServiceException rejection) throws Throwable {
+            Throwable failure = rejection;
+            for (Options next = current.degraded(); next != null; next = next.degraded()) {
+                try {
+                    IRoutingService port = createPort(next);
+                    Object result = invokeOn(port, method, args);
+
+                    System.err.println("[WARN] SOAP transport with " + current.describe() + " rejected ("
+                            + rejection.getMessage() + "), falling back to " + next.describe());
+                    delegate = port;
+                    current = next;
+                    return result;
+                } catch (WebServiceException retry) {
+                    failure = retry;
+                    if (retry instanceof SOAPFaultException || !isRejectedByServer(retry)) {
+                        break;
+                    }
+                } catch (Throwable retry) {
+                    failure = retry;
+                    break;
+                }
+            }
+
+            if (failure != rejection) {
+                failure.addSuppressed(rejection);
+            }
+            throw failure;
+        }
+
+        /**
+         * Statut HTTP renvoyé par le serveur quand il ne comprend pas l'encodage de la requête
+         */
+        private static boolean isRejectedByServer(WebServiceException e) {
+            if (!(e instanceof ClientTransportException transport)
+                    || !"http.status.code".equals(transport.getKey())
+                    || transport.getArguments().length == 0) {
+                return false;
+            }
+
+            int status;
+            try {
+                status = Integer.parseInt(String.valueOf(transport.getArguments()[0]));
+            } catch (NumberFormatException ignored) {
+                return false;
+            }
+            return status == 400 || status == 415 || status >= 500;
+        }
+
+        private static Object invokeOn(IRoutingService target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.heavyclient;
+
+import com.soap.generated.IRoutingService;
+import com.soap.generated.ItineraryResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lance plusieurs variantes d'une requête d'itinéraire en parallèle (points d'accroche voisins)
+ * et retient la première réponse valide. Les variantes pas encore parties sont alors annulées ;
+ * celles déjà en cours vont à leur terme mais leur réponse est ignorée.
+ * Sur option (mesures de charge), un recalcul sur {@code baselineEvery} n'envoie que la requête exacte :
+ * sa latence, mesurée sans concurrence des variantes, sert de référence pour mesurer le gain.
+ * Désactivé par défaut pour ne pas dégrader la latence des recalculs réels.
+ */
+public class SpeculativeItineraryFetcher {
+
+    public static final String VARIANTS_PROPERTY = "heavyclient.speculative.variants";
+    public static final String THREADS_PROPERTY = "heavyclient.speculative.threads";
+    public static final String BASELINE_EVERY_PROPERTY = "heavyclient.speculative.baseline.every";
+
+    // ~200 m : assez pour accrocher un autre tronçon, assez peu pour rester le même trajet
+    private static final double SNAP_OFFSET_DEGREES = 0.002;
+    private static final double[][] SNAP_OFFSETS = {
+            {0, 0},
+            {SNAP_OFFSET_DEGREES, SNAP_OFFSET_DEGREES},
+            {-SNAP_OFFSET_DEGREES, -SNAP_OFFSET_DEGREES},
+            {SNAP_OFFSET_DEGREES, -SNAP_OFFSET_DEGREES},
+            {-SNAP_OFFSET_DEGREES, SNAP_OFFSET_DEGREES}
+    };
+
+    private final IRoutingService client;
+    private final int variants;
+    private final int baselineEvery;
+    private final ExecutorService pool;
+
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong cancelledCalls = new AtomicLong();
+    private final List<Long> speculativeNanos = new ArrayList<>();
+    private final List<Long> baselineNanos = new ArrayList<>();
+
+    public SpeculativeItineraryFetcher(IRoutingService client) {
+        this(client,
+                Integer.getInteger(VARIANTS_PROPERTY, 3),
+                Integer.getInteger(THREADS_PROPERTY, 4),
+                Integer.getInteger(BASELINE_EVERY_PROPERTY, 0));
+    }
+
+    /**
+     * @param client        port SOAP partagé par les variantes
+     * @param variants      nombre de requêtes lancées par recalcul (1 = requête unique)
+     * @param threads       taille du pool d'appels
+     * @param baselineEvery un recalcul sur {@code baselineEvery} n'envoie que la requête exacte, pour la référence
+     *                      (0 = jamais)
+     */
+    public SpeculativeItineraryFetcher(IRoutingService client, int variants, int threads, int baselineEvery) {
+        if (variants < 1 || variants > SNAP_OFFSETS.length) {
+            throw new IllegalArgumentException("Variants must be between 1 and " + SNAP_OFFSETS.length + ": " + variants);
+        }
+        if (baselineEvery < 0) {
+            throw new IllegalArgumentException("Baseline interval must be 0 (off) or positive: " + baselineEvery);
+        }
+        this.client = client;
+        this.variants = variants;
+        this.baselineEvery = baselineEvery;
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "itinerary-fetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Retourne la première réponse valide parmi les variantes.
+     * Si toutes échouent, renvoie l'erreur de la dernière.
+     */
+    public ItineraryResult fetch(ItineraryRequest request) throws InterruptedException, ExecutionException {
+        int calls = callsForNextFetch();
+        boolean solo = calls == 1;
+        fetches.incrementAndGet();
+
+        long start = System.nanoTime();
+        CompletableFuture<ItineraryResult> first = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(calls);
+        List<CompletableFuture<ItineraryResult>> attempts = new ArrayList<>();
+        List<AtomicBoolean> claims = new ArrayList<>();
+
+        for (int i = 0; i < calls; i++) {
+            ItineraryRequest variant = request.shifted(SNAP_OFFSETS[i][0], SNAP_OFFSETS[i][1]);
+
+            // Réservée par le thread qui lance l'appel ou par l'annulation, jamais les deux
+            AtomicBoolean claimed = new AtomicBoolean();
+            CompletableFuture<ItineraryResult> attempt = CompletableFuture.supplyAsync(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    throw new CancellationException();
+                }
+                return variant.call(client);
+            }, pool);
+            attempts.add(attempt);
+            claims.add(claimed);
+
+            attempt.whenComplete((result, error) -> {
+                long elapsed = System.nanoTime() - start;
+                if (error == null && isUsable(result) && first.complete(result)) {
+                    record(solo ? baselineNanos : speculativeNanos, elapsed);
+                }
+
+                if (pending.decrementAndGet() == 0 && !first.isDone()) {
+                    first.completeExceptionally(error != null ? error : new IllegalStateException(
+                            "No usable itinerary among " + calls + " variants"));
+                }
+            });
+        }
+
+        // Dès la première réponse, les variantes encore en file d'attente ne partent plus
+        first.whenComplete((result, error) -> {
+            for (int i = 0; i < attempts.size(); i++) {
+                if (claims.get(i).compareAndSet(false, true)) {
+                    attempts.get(i).cancel(false);
+                    cancelledCalls.incrementAndGet();
+                }
+            }
+        });
+
+        return first.get();
+    }
+
+    /**
+     * Nombre d'appels getItinerary que le prochain recalcul enverra
+     */
+    public int callsForNextFetch() {
+        return baselineEvery > 0 && (fetches.get() + 1) % baselineEvery == 0 ? 1 : variants;
+    }
+
+    /**
+     * Latences (ms) de la réponse retenue comparées à celles de la requête exacte envoyée seule
+     */
+    public String latencyReport() {
+        String baseline = baselineEvery > 0 || variants == 1
+                ? percentiles(baselineNanos) : "off (" + BASELINE_EVERY_PROPERTY + "=0)";
+        return String.format("Itinerary latency (%d variants) - first: %s | single request: %s | %d queued calls cancelled",
+                variants, percentiles(speculativeNanos), baseline, cancelledCalls.get());
+    }
+
+    /**
+     * Arrête le pool d'appels ; les recalculs suivants échouent
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static boolean isUsable(ItineraryResult result) {
+        return result != null && Boolean.TRUE.equals(result.isSuccess())
+                && result.getData() != null && result.getData().getValue() != null;
+    }
+
+    private static void record(List<Long> samples, long nanos) {
+        synchronized (samples) {
+            samples.add(nanos);
+        }
+    }
+
+    private static String percentiles(List<Long> samples) {
+        List<Long> sorted;
+        synchronized (samples) {
+            sorted = new ArrayList<>(samples);
+        }
+        if (sorted.isEmpty()) {
+            return "N/A";
+        }
+
+        Collections.sort(sorted);
+        return String.format("p50=%.1f p90=%.1f p99=%.1f (n=%d)",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), sorted.size());
+    }
+
+    private static double percentile(List<Long> sorted, double q) {
+        int index = (int) Math.ceil(q * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1e6;
+    }
+}
@@ -0,0 +1,249 @@
+package com.heavyclient.bench;
+
+import com.heavyclient.AMQNotificationListener;
+import com.heavyclient.HeavyClientUI;
+import com.heavyclient.RoutingClientFactory;
+import com.heavyclient.SpeculativeItineraryFetcher;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+
+import javax.jms.*;
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Harnais de charge local : broker ActiveMQ embarqué + serveur SOAP simulé
+ * Inonde {@code notifications.global} à débit fixe et mesure la latence de bout en bout,
+ * de la publication au recalcul puis à l'affichage de la route
+ *
+ * Usage : LoadTestHarness [messages/s] [durée s] [points de route] [latence SOAP ms]
+ */
+public class LoadTestHarness {
+
+    private static final String SEPARATOR = "=".repeat(60);
+    private static final long DRAIN_TIMEOUT_MILLIS = 30_000;
+
+    private final int rate;
+    private final int durationSeconds;
+
+    private final long[] publishedAt;
+    private final AtomicInteger published = new AtomicInteger();
+    // Séquence de la notification -> {version de la route, instant d'affichage}
+    private final Map<Long, long[]> drawnAt = new ConcurrentHashMap<>();
+    // Séquences traitées sans produire de route (hors corridor, recalcul en échec)
+    private final Set<Long> skipped = ConcurrentHashMap.newKeySet();
+    private final List<long[]> paintedAt = new ArrayList<>();
+
+    public LoadTestHarness(int rate, int durationSeconds) {
+        if (rate <= 0 || durationSeconds <= 0) {
+            throw new IllegalArgumentException("Rate and duration must be positive: " + rate + " msg/s, " + durationSeconds + "s");
+        }
+        this.rate = rate;
+        this.durationSeconds = durationSeconds;
+        this.publishedAt = new long[rate * durationSeconds];
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int durationSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int routePoints = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        long latencyMillis = args.length > 3 ? Long.parseLong(args[3]) : 50;
+
+        if (rate <= 0 || durationSeconds <= 0) {
+            System.err.println("[ERROR] Rate (messages/s) and duration (s) must be positive");
+            System.exit(1);
+        }
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("[ERROR] The load test paints routes and needs a display");
+            System.exit(1);
+        }
+
+        BrokerService broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.addConnector("tcp://localhost:0");
+        broker.start();
+        broker.waitUntilStarted();
+
+        StubRoutingServer stub = new StubRoutingServer(0, routePoints, latencyMillis);
+        stub.start();
+
+        try {
+            // Le client est redirigé vers le broker et le serveur locaux
+            String brokerUrl = broker.getTransportConnectors().get(0).getPublishableConnectString();
+            System.setProperty(AMQNotificationListener.BROKER_URL_PROPERTY, brokerUrl);
+            System.setProperty(RoutingClientFactory.ENDPOINT_PROPERTY, stub.getUrl());
+            // Mesure de référence : un recalcul sur dix envoie la requête exacte seule (sauf réglage explicite)
+            if (System.getProperty(SpeculativeItineraryFetcher.BASELINE_EVERY_PROPERTY) == null) {
+                System.setProperty(SpeculativeItineraryFetcher.BASELINE_EVERY_PROPERTY, "10");
+            }
+
+            System.out.println(SEPARATOR);
+            System.out.println("LOAD TEST - " + rate + " msg/s for " + durationSeconds + "s, "
+                    + routePoints + " points, " + latencyMillis + "ms SOAP latency");
+            System.out.println("  Broker: " + brokerUrl);
+            System.out.println("  SOAP:   " + stub.getUrl());
+            System.out.println(SEPARATOR);
+
+            new LoadTestHarness(rate, durationSeconds).run(brokerUrl);
+        } finally {
+            stub.stop();
+            broker.stop();
+        }
+
+        System.exit(0);
+    }
+
+    private void run(String brokerUrl) throws Exception {
+        HeavyClientUI ui = new HeavyClientUI();
+        ui.setRouteListener(new HeavyClientUI.RouteListener() {
+            @Override
+            public void routeDrawn(long version, long sequence) {
+                if (sequence != HeavyClientUI.NO_SEQUENCE) {
+                    drawnAt.put(sequence, new long[]{version, System.nanoTime()});
+                }
+            }
+
+            @Override
+            public void routePainted(long version) {
+                synchronized (paintedAt) {
+                    paintedAt.add(new long[]{version, System.nanoTime()});
+                }
+            }
+        });
+        ui.showUI();
+
+        AMQNotificationListener listener = new AMQNotificationListener(RoutingClientFactory.create(), ui);
+        listener.setSkipListener(skipped::add);
+        listener.StartListening();
+
+        Connection connection = new ActiveMQConnectionFactory(brokerUrl).createConnection();
+        connection.start();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(session.createTopic(AMQNotificationListener.TOPIC_NAME));
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+        ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor();
+        publisher.scheduleAtFixedRate(() -> publish(session, producer), 0, 1_000_000L / rate, TimeUnit.MICROSECONDS);
+
+        // Attend la fin de la publication puis le traitement des messages en retard
+        long deadline = System.currentTimeMillis() + durationSeconds * 1000L + DRAIN_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline && !settled()) {
+            Thread.sleep(100);
+        }
+        publisher.shutdownNow();
+        publisher.awaitTermination(5, TimeUnit.SECONDS);
+        connection.close();
+
+        report();
+        System.out.println(listener.getLatencyReport());
+        System.out.println(ui.getFrameReport());
+        System.out.println(SEPARATOR);
+        listener.shutdown();
+    }
+
+    private void publish(Session session, MessageProducer producer) {
+        int index = published.get();
+        if (index >= publishedAt.length) {
+            return;
+        }
+
+        try {
+            TextMessage message = session.createTextMessage("VÉLOS LIMITÉS - load test #" + (index + 1));
+            message.setLongProperty(AMQNotificationListener.SEQUENCE_PROPERTY, index);
+            publishedAt[index] = System.nanoTime();
+            producer.send(message);
+            published.incrementAndGet();
+        } catch (JMSException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Tous les messages publiés ont été traités (route produite ou non), et la dernière route a été peinte
+     */
+    private boolean settled() {
+        if (drawnAt.size() + skipped.size() < publishedAt.length) {
+            return false;
+        }
+        long lastDrawn = 0;
+        for (long[] drawn : drawnAt.values()) {
+            lastDrawn = Math.max(lastDrawn, drawn[0]);
+        }
+        synchronized (paintedAt) {
+            long lastPainted = paintedAt.isEmpty() ? 0 : paintedAt.get(paintedAt.size() - 1)[0];
+            return lastPainted >= lastDrawn;
+        }
+    }
+
+    /**
+     * Chaque message est relié à la route qu'il a produite par sa propriété de séquence :
+     * un recalcul ignoré ou en échec ne décale pas les suivants.
+     * Une peinture couvre toutes les versions qu'elle rattrape.
+     */
+    private void report() {
+        int count = published.get();
+        long[] recalculation = new long[count];
+        long[] endToEnd = new long[count];
+        int recalculated = 0;
+        int painted = 0;
+
+        List<long[]> paints;
+        synchronized (paintedAt) {
+            paints = new ArrayList<>(paintedAt);
+        }
+
+        for (int k = 0; k < count; k++) {
+            long[] drawn = drawnAt.get((long) k);
+            if (drawn == null) {
+                continue;
+            }
+            long version = drawn[0];
+            recalculation[recalculated++] = drawn[1] - publishedAt[k];
+
+            // Les versions sont peintes dans l'ordre : première peinture qui atteint cette version
+            for (long[] paint : paints) {
+                if (paint[0] >= version) {
+                    endToEnd[painted++] = paint[1] - publishedAt[k];
+                    break;
+                }
+            }
+        }
+
+        System.out.println("Published: " + count + ", recalculated: " + recalculated + ", painted: " + painted);
+        if (recalculated < count) {
+            System.out.println("  " + (count - recalculated) + " notifications produced no route ("
+                    + skipped.size() + " skipped or failed, " + (count - recalculated - skipped.size())
+                    + " unfinished) and are left out of the percentiles");
+        }
+        System.out.printf("%-26s %8s %8s %8s %8s%n", "latency (ms)", "p50", "p90", "p99", "max");
+        printPercentiles("publish -> recalculated", Arrays.copyOf(recalculation, recalculated));
+        printPercentiles("publish -> painted", Arrays.copyOf(endToEnd, painted));
+    }
+
+    private static void printPercentiles(String label, long[] nanos) {
+        if (nanos.length == 0) {
+            System.out.printf("%-26s %8s%n", label, "N/A");
+            return;
+        }
+
+        Arrays.sort(nanos);
+        System.out.printf("%-26s %8.1f %8.1f %8.1f %8.1f%n", label,
+                percentile(nanos, 0.50), percentile(nanos, 0.90), percentile(nanos, 0.99),
+                nanos[nanos.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double q) {
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,76 @@
+package com.heavyclient.bench;
+
+import com.heavyclient.utils.QuantizedRoute;
+import org.jxmapviewer.viewer.GeoPosition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Mesure la mémoire occupée par point de route : liste de GeoPosition contre {@link QuantizedRoute}
+ *
+ * Usage : RouteMemoryBenchmark [nombre de routes] [points par route]
+ */
+public class RouteMemoryBenchmark {
+
+    private static final String SEPARATOR = "=".repeat(60);
+
+    public static void main(String[] args) {
+        int routes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int points = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        long vertices = (long) routes * points;
+
+        System.out.println(SEPARATOR);
+        System.out.println("ROUTE MEMORY - " + routes + " routes x " + points + " points");
+        System.out.println(SEPARATOR);
+
+        long before = usedHeap();
+        List<List<GeoPosition>> objects = new ArrayList<>(routes);
+        for (int r = 0; r < routes; r++) {
+            objects.add(buildRoute(r, points));
+        }
+        long objectBytes = usedHeap() - before;
+
+        before = usedHeap();
+        List<QuantizedRoute> quantized = new ArrayList<>(routes);
+        for (int r = 0; r < routes; r++) {
+            quantized.add(QuantizedRoute.of(objects.get(r)));
+            objects.set(r, null);
+        }
+        long quantizedBytes = usedHeap() - before + objectBytes;
+
+        double maxErrorMeters = 0;
+        List<GeoPosition> reference = buildRoute(0, points);
+        for (int i = 0; i < points; i++) {
+            double dLat = Math.abs(reference.get(i).getLatitude() - quantized.get(0).latitude(i));
+            double dLon = Math.abs(reference.get(i).getLongitude() - quantized.get(0).longitude(i));
+            maxErrorMeters = Math.max(maxErrorMeters, Math.max(dLat, dLon) * 111_320);
+        }
+
+        System.out.printf("List<GeoPosition>  %8.1f bytes/vertex%n", (double) objectBytes / vertices);
+        System.out.printf("QuantizedRoute     %8.1f bytes/vertex (estimate %.1f)%n",
+                (double) quantizedBytes / vertices, (double) quantized.get(0).sizeInBytes() / points);
+        System.out.printf("Max quantization error: %.2f cm%n", maxErrorMeters * 100);
+        System.out.println(SEPARATOR);
+    }
+
+    private static List<GeoPosition> buildRoute(int seed, int points) {
+        Random random = new Random(seed);
+        List<GeoPosition> route = new ArrayList<>(points);
+        for (int i = 0; i < points; i++) {
+            double t = (double) i / points;
+            route.add(new GeoPosition(45.758 + t * 3.1 + random.nextGaussian() * 0.001,
+                    4.835 - t * 2.5 + random.nextGaussian() * 0.001));
+        }
+        return route;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,307 @@
+package com.heavyclient.bench;
+
+import com.soap.generated.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.jws.WebService;
+import jakarta.xml.ws.Endpoint;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serveur SOAP local imitant le service de routage
+ * Renvoie un itinéraire synthétique de taille configurable, avec une latence simulée,
+ * et mesure les octets échangés sur le réseau (gzip et Fast Infoset supportés)
+ */
+public class StubRoutingServer {
+
+    public static final String PATH = "/RoutingServiceSOAP";
+
+    // Contexte servant le WSDL généré par JAX-WS à partir de l'interface du service
+    private static final String METADATA_PATH = "/metadata";
+
+    private static final String SOAP_NS = "http://schemas.xmlsoap.org/soap/envelope/";
+    private static final String XML_CONTENT_TYPE = "text/xml; charset=utf-8";
+    private static final String FAST_INFOSET_CONTENT_TYPE = "application/fastinfoset";
+
+    private final int port;
+    private final long latencyMillis;
+    private final byte[] xmlResponse;
+    private final byte[] fastInfosetResponse;
+    private final ItineraryResult itinerary;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private volatile CapturedResponse lastResponse;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param port          port d'écoute (0 pour un port libre)
+     * @param routePoints   nombre de points de la géométrie renvoyée
+     * @param latencyMillis délai simulé avant chaque réponse
+     */
+    public StubRoutingServer(int port, int routePoints, long latencyMillis) {
+        this.port = port;
+        this.latencyMillis = latencyMillis;
+
+        GetItineraryResponse response = buildResponse(routePoints);
+        this.xmlResponse = render(response, false);
+        this.fastInfosetResponse = render(response, true);
+        this.itinerary = response.getGetItineraryResult().getValue();
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+        Endpoint.create(new MetadataEndpoint(itinerary)).publish(server.createContext(METADATA_PATH));
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Adresse du endpoint, à passer au client via {@code heavyclient.soap.endpoint}
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getRequestBytes() {
+        return requestBytes.get();
+    }
+
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    /**
+     * Dernière réponse envoyée, telle qu'elle est partie sur le réseau (null avant le premier appel)
+     */
+    public CapturedResponse getLastResponse() {
+        return lastResponse;
+    }
+
+    public void resetCounters() {
+        requests.set(0);
+        requestBytes.set(0);
+        responseBytes.set(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if ("GET".equals(exchange.getRequestMethod())) {
+            serveWsdl(exchange);
+            return;
+        }
+
+        try (exchange) {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            requests.incrementAndGet();
+            requestBytes.addAndGet(body.length);
+
+            // Vérifie que les requêtes compressées sont bien décodables
+            if (headerContains(exchange, "Content-Encoding", "gzip")) {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    in.readAllBytes();
+                }
+            }
+
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            boolean fastInfoset = headerContains(exchange, "Accept", FAST_INFOSET_CONTENT_TYPE)
+                    || headerContains(exchange, "Content-Type", FAST_INFOSET_CONTENT_TYPE);
+            byte[] payload = fastInfoset ? fastInfosetResponse : xmlResponse;
+            exchange.getResponseHeaders().set("Content-Type", fastInfoset ? FAST_INFOSET_CONTENT_TYPE : XML_CONTENT_TYPE);
+
+            boolean gzipped = headerContains(exchange, "Accept-Encoding", "gzip");
+            if (gzipped) {
+                payload = gzip(payload);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            lastResponse = new CapturedResponse(payload, fastInfoset, gzipped);
+
+            exchange.sendResponseHeaders(200, payload.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(payload);
+            }
+            responseBytes.addAndGet(payload.length);
+        }
+    }
+
+    /**
+     * Relaie le WSDL publié sur le contexte de métadonnées, le client le chargeant depuis {@code <endpoint>?wsdl}
+     */
+    private void serveWsdl(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String query = exchange.getRequestURI().getRawQuery();
+            URL metadata = new URL("http://localhost:" + server.getAddress().getPort() + METADATA_PATH
+                    + "?" + (query != null ? query : "wsdl"));
+
+            byte[] wsdl;
+            try (InputStream in = metadata.openStream()) {
+                wsdl = in.readAllBytes();
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", XML_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, wsdl.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(wsdl);
+            }
+        }
+    }
+
+    private static boolean headerContains(HttpExchange exchange, String name, String value) {
+        List<String> values = exchange.getRequestHeaders().get(name);
+        if (values == null) return false;
+
+        for (String v : values) {
+            if (v.contains(value)) return true;
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Construit un itinéraire Lyon → Paris avec une géométrie de {@code routePoints} points
+     */
+    private static GetItineraryResponse buildResponse(int routePoints) {
+        ObjectFactory factory = new ObjectFactory();
+        Random random = new Random(42);
+
+        ArrayOfArrayOfdouble coordinates = factory.createArrayOfArrayOfdouble();
+        for (int i = 0; i < routePoints; i++) {
+            double t = routePoints > 1 ? (double) i / (routePoints - 1) : 0;
+            ArrayOfdouble point = factory.createArrayOfdouble();
+            point.getDouble().add(45.758 + t * (48.8566 - 45.758) + random.nextGaussian() * 0.001);
+            point.getDouble().add(4.835 + t * (2.3522 - 4.835) + random.nextGaussian() * 0.001);
+            coordinates.getArrayOfdouble().add(point);
+        }
+
+        Geometry geometry = factory.createGeometry();
+        geometry.setCoordinates(factory.createGeometryCoordinates(coordinates));
+
+        ItineraryData data = factory.createItineraryData();
+        data.setGeometry(factory.createItineraryDataGeometry(geometry));
+        data.setTotalDistance(465_000.0);
+        data.setTotalDuration(16_200.0);
+
+        ItineraryResult result = factory.createItineraryResult();
+        result.setSuccess(true);
+        result.setData(factory.createItineraryResultData(data));
+
+        GetItineraryResponse response = factory.createGetItineraryResponse();
+        response.setGetItineraryResult(factory.createGetItineraryResponseGetItineraryResult(result));
+        return response;
+    }
+
+    /**
+     * Sérialise la réponse dans une enveloppe SOAP 1.1, en XML ou en Fast Infoset
+     */
+    private static byte[] render(GetItineraryResponse response, boolean fastInfoset) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            XMLStreamWriter writer = fastInfoset
+                    ? new StAXDocumentSerializer(bytes)
+                    : XMLOutputFactory.newInstance().createXMLStreamWriter(bytes, "UTF-8");
+
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("s", "Envelope", SOAP_NS);
+            writer.writeNamespace("s", SOAP_NS);
+            writer.writeStartElement("s", "Body", SOAP_NS);
+
+            Marshaller marshaller = JAXBContext.newInstance(GetItineraryResponse.class).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            marshaller.marshal(response, writer);
+
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+            return bytes.toByteArray();
+        } catch (JAXBException | XMLStreamException e) {
+            throw new IllegalStateException("Failed to render stub response", e);
+        }
+    }
+
+    /**
+     * Corps d'une réponse envoyée et son encodage
+     *
+     * @param body        octets envoyés
+     * @param fastInfoset enveloppe encodée en Fast Infoset plutôt qu'en XML
+     * @param gzip        corps compressé en gzip
+     */
+    public record CapturedResponse(byte[] body, boolean fastInfoset, boolean gzip) {
+    }
+
+    /**
+     * Implémentation publiée pour que JAX-WS génère le WSDL du service ;
+     * un appel direct reçoit le même itinéraire synthétique que le point d'accès principal
+     */
+    @WebService(
+            endpointInterface = "com.soap.generated.IRoutingService",
+            targetNamespace = "http://tempuri.org/",
+            serviceName = "RoutingService",
+            portName = "BasicHttpBinding_IRoutingService"
+    )
+    public static class MetadataEndpoint implements IRoutingService {
+
+        private final ItineraryResult itinerary;
+
+        public MetadataEndpoint(ItineraryResult itinerary) {
+            this.itinerary = itinerary;
+        }
+
+        @Override
+        public ItineraryResult getItinerary(String originLat, String originLon, String originCity,
+                                            String destLat, String destLon, String destCity) {
+            return itinerary;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.heavyclient.bench;
+
+import com.heavyclient.RoutingClientFactory;
+import com.soap.generated.GetItineraryResponse;
+import com.soap.generated.IRoutingService;
+import com.soap.generated.ItineraryResult;
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compare les variantes de transport SOAP (XML, gzip, Fast Infoset)
+ * contre le serveur local : octets sur le réseau, durée d'appel et temps de décodage de la réponse
+ *
+ * Le décodage est mesuré sur les octets de réponse capturés par le serveur : décompression gzip,
+ * lecture XML ou Fast Infoset et désérialisation JAXB, comme dans le runtime JAX-WS mais sans le réseau.
+ *
+ * Usage : TransportBenchmark [points de route] [itérations]
+ */
+public class TransportBenchmark {
+
+    private static final String SEPARATOR = "=".repeat(60);
+    private static final int DECODE_WARMUP = 20;
+    private static final XMLInputFactory XML_INPUT = XMLInputFactory.newInstance();
+
+    public static void main(String[] args) throws Exception {
+        int routePoints = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        StubRoutingServer stub = new StubRoutingServer(0, routePoints, 0);
+        stub.start();
+
+        try {
+            String url = stub.getUrl();
+            Map<String, RoutingClientFactory.Options> variants = new LinkedHashMap<>();
+            variants.put("xml", new RoutingClientFactory.Options(url, false, false, false, false));
+            variants.put("xml+gzip", new RoutingClientFactory.Options(url, true, false, false, false));
+            variants.put("xml+gzip+gzipreq", new RoutingClientFactory.Options(url, true, true, false, false));
+            variants.put("fastinfoset", new RoutingClientFactory.Options(url, false, false, true, false));
+            variants.put("fastinfoset+gzip", new RoutingClientFactory.Options(url, true, false, true, false));
+
+            Unmarshaller unmarshaller = JAXBContext.newInstance(GetItineraryResponse.class).createUnmarshaller();
+
+            // 1) Appels réels : octets et durée d'appel, et capture de la réponse de chaque variante
+            Map<String, Result> results = new LinkedHashMap<>();
+            for (Map.Entry<String, RoutingClientFactory.Options> variant : variants.entrySet()) {
+                results.put(variant.getKey(), call(stub, RoutingClientFactory.create(variant.getValue()), iterations));
+            }
+
+            // 2) Décodage seul des réponses capturées, variantes entrelacées après un échauffement commun
+            for (int i = 0; i < DECODE_WARMUP; i++) {
+                for (Result result : results.values()) {
+                    decode(result.response, unmarshaller);
+                }
+            }
+            for (int i = 0; i < iterations; i++) {
+                for (Result result : results.values()) {
+                    long start = System.nanoTime();
+                    decode(result.response, unmarshaller);
+                    result.decodeNanos += System.nanoTime() - start;
+                }
+            }
+
+            System.out.println(SEPARATOR);
+            System.out.println("SOAP TRANSPORT BENCHMARK - " + routePoints + " points, " + iterations + " calls");
+            System.out.println(SEPARATOR);
+            System.out.printf("%-18s %10s %12s %10s %10s%n", "variant", "req B", "resp B", "call ms", "decode ms");
+            for (Map.Entry<String, Result> entry : results.entrySet()) {
+                Result result = entry.getValue();
+                System.out.printf("%-18s %10d %12d %10.2f %10.2f%n",
+                        entry.getKey(),
+                        result.requestBytes,
+                        result.responseBytes,
+                        result.callNanos / 1e6 / iterations,
+                        result.decodeNanos / 1e6 / iterations);
+            }
+            System.out.println(SEPARATOR);
+            System.out.println("call ms: full round trip on localhost, decode included");
+            System.out.println("decode ms: gunzip + XML/Fast Infoset parsing + JAXB unmarshalling of the captured response");
+        } finally {
+            stub.stop();
+        }
+    }
+
+    private static Result call(StubRoutingServer stub, IRoutingService client, int iterations) {
+        // Échauffement : chargement des classes et négociation Fast Infoset
+        for (int i = 0; i < 3; i++) {
+            call(client);
+        }
+        stub.resetCounters();
+
+        Result result = new Result();
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            call(client);
+            result.callNanos += System.nanoTime() - start;
+        }
+
+        long calls = Math.max(1, stub.getRequests());
+        result.requestBytes = stub.getRequestBytes() / calls;
+        result.responseBytes = stub.getResponseBytes() / calls;
+        // Octets réellement reçus par le client pour cette variante
+        result.response = stub.getLastResponse();
+        return result;
+    }
+
+    /**
+     * Décode une enveloppe SOAP capturée jusqu'au résultat d'itinéraire
+     */
+    private static ItineraryResult decode(StubRoutingServer.CapturedResponse response, Unmarshaller unmarshaller)
+            throws IOException, XMLStreamException, JAXBException {
+        InputStream raw = new ByteArrayInputStream(response.body());
+        try (InputStream in = response.gzip() ? new GZIPInputStream(raw) : raw) {
+            XMLStreamReader reader = response.fastInfoset()
+                    ? new StAXDocumentParser(in)
+                    : XML_INPUT.createXMLStreamReader(in);
+            reader.nextTag(); // Envelope
+            reader.nextTag(); // Body
+            reader.nextTag(); // GetItineraryResponse
+
+            GetItineraryResponse payload = unmarshaller.unmarshal(reader, GetItineraryResponse.class).getValue();
+            reader.close();
+            return payload.getGetItineraryResult().getValue();
+        }
+    }
+
+    private static ItineraryResult call(IRoutingService client) {
+        return client.getItinerary("45.758", "4.835", "Lyon", "48.8566", "2.3522", "Paris");
+    }
+
+    /**
+     * Mesures d'une variante
+     */
+    private static class Result {
+        long requestBytes;
+        long responseBytes;
+        long callNanos;
+        long decodeNanos;
+        StubRoutingServer.CapturedResponse response;
+    }
+}
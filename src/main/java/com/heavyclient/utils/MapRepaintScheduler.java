@@ -0,0 +1,279 @@
+package com.heavyclient.utils;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EventListener;
+import java.util.List;
+
+/**
+ * Regroupe les demandes de repaint d'un composant et les limite à une fréquence d'images cible
+ * Les repaints déclenchés par les écouteurs d'interaction (glisser, molette) sont peints au prochain créneau ;
+ * les autres (tuiles, overlays) et les changements d'overlay attendent la fin de l'interaction.
+ * La durée de chaque image peinte est enregistrée.
+ */
+public class MapRepaintScheduler {
+
+    /**
+     * Urgence d'une demande de repaint
+     */
+    public enum Priority {
+        /** Réponse à une action utilisateur : peinte dès le prochain créneau d'image */
+        INTERACTIVE,
+        /** Tuile, overlay ou route : repoussée tant que l'utilisateur interagit */
+        BACKGROUND
+    }
+
+    // Délai après le dernier glisser / coup de molette pendant lequel on considère l'utilisateur actif
+    private static final long INTERACTION_WINDOW_NANOS = 150_000_000L;
+    private static final int FRAME_HISTORY = 1024;
+
+    private final JComponent target;
+    private final long frameIntervalNanos;
+    private final Timer timer;
+
+    private Rectangle interactiveDirty;
+    private Rectangle backgroundDirty;
+    private final List<Runnable> idleTasks = new ArrayList<>();
+    private long scheduledNanos;
+    private long lastFrameNanos;
+    private volatile long lastInteractionNanos;
+
+    // Vrai pendant qu'un écouteur d'interaction s'exécute sur l'EDT
+    private boolean dispatchingInteraction;
+
+    private long requests;
+    private long frames;
+    private long totalFrameNanos;
+    private long maxFrameNanos;
+    private final long[] recentFrameNanos = new long[FRAME_HISTORY];
+
+    /**
+     * @param target    composant à repeindre
+     * @param targetFps nombre maximal d'images par seconde
+     */
+    public MapRepaintScheduler(JComponent target, int targetFps) {
+        this.target = target;
+        this.frameIntervalNanos = 1_000_000_000L / targetFps;
+        this.lastFrameNanos = System.nanoTime() - frameIntervalNanos;
+        this.lastInteractionNanos = System.nanoTime() - INTERACTION_WINDOW_NANOS;
+        this.timer = new Timer(0, e -> flush());
+        this.timer.setRepeats(false);
+    }
+
+    /**
+     * Enveloppe un écouteur de navigation (pan, zoom) : les repaints qu'il provoque sont interactifs,
+     * et ses glisser / coups de molette repoussent les mises à jour de fond.
+     *
+     * @param delegate écouteur souris, de mouvement et/ou de molette
+     * @return l'écouteur à enregistrer sur le composant à la place du délégué
+     */
+    public MouseAdapter interactive(EventListener delegate) {
+        return new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (delegate instanceof MouseListener listener) dispatch(() -> listener.mousePressed(e), false);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (delegate instanceof MouseListener listener) dispatch(() -> listener.mouseReleased(e), false);
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (delegate instanceof MouseListener listener) dispatch(() -> listener.mouseClicked(e), false);
+            }
+
+            @Override
+            public void mouseEntered(MouseEvent e) {
+                if (delegate instanceof MouseListener listener) dispatch(() -> listener.mouseEntered(e), false);
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                if (delegate instanceof MouseListener listener) dispatch(() -> listener.mouseExited(e), false);
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                if (delegate instanceof MouseMotionListener listener) dispatch(() -> listener.mouseMoved(e), false);
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (delegate instanceof MouseMotionListener listener) dispatch(() -> listener.mouseDragged(e), true);
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (delegate instanceof MouseWheelListener listener) dispatch(() -> listener.mouseWheelMoved(e), true);
+            }
+        };
+    }
+
+    /**
+     * Demande le repaint d'une zone : interactif s'il provient d'un écouteur d'interaction, de fond sinon
+     */
+    public void requestRepaint(Rectangle region) {
+        boolean interactive = dispatchingInteraction && SwingUtilities.isEventDispatchThread();
+        requestRepaint(region, interactive ? Priority.INTERACTIVE : Priority.BACKGROUND);
+    }
+
+    /**
+     * Demande le repaint de tout le composant
+     */
+    public void requestRepaint(Priority priority) {
+        requestRepaint(new Rectangle(0, 0, target.getWidth(), target.getHeight()), priority);
+    }
+
+    public synchronized void requestRepaint(Rectangle region, Priority priority) {
+        requests++;
+        if (priority == Priority.INTERACTIVE) {
+            interactiveDirty = union(interactiveDirty, region);
+        } else {
+            backgroundDirty = union(backgroundDirty, region);
+        }
+        schedule();
+    }
+
+    /**
+     * Exécute une modification de l'affichage (overlay, zoom) sur l'EDT, hors interaction :
+     * dès que possible si l'utilisateur ne manipule pas la carte, sinon une fois l'interaction terminée.
+     * Peut être appelée depuis n'importe quel thread ; les tâches s'exécutent dans l'ordre de soumission.
+     */
+    public synchronized void runWhenIdle(Runnable task) {
+        idleTasks.add(task);
+        schedule();
+    }
+
+    /**
+     * Statistiques de rendu : demandes reçues, images peintes et durée par image
+     */
+    public synchronized String frameReport() {
+        if (frames == 0) {
+            return "Map frames: none painted (" + requests + " repaint requests)";
+        }
+
+        long[] recent = Arrays.copyOf(recentFrameNanos, (int) Math.min(frames, FRAME_HISTORY));
+        Arrays.sort(recent);
+        long p95 = recent[Math.max(0, (int) Math.ceil(0.95 * recent.length) - 1)];
+
+        return String.format("Map frames: %d painted for %d repaint requests - avg=%.2fms p95=%.2fms max=%.2fms",
+                frames, requests, totalFrameNanos / 1e6 / frames, p95 / 1e6, maxFrameNanos / 1e6);
+    }
+
+    private void dispatch(Runnable listenerCall, boolean interaction) {
+        if (interaction) {
+            lastInteractionNanos = System.nanoTime();
+        }
+        boolean outer = !dispatchingInteraction;
+        dispatchingInteraction = true;
+        try {
+            listenerCall.run();
+        } finally {
+            if (outer) {
+                dispatchingInteraction = false;
+            }
+        }
+    }
+
+    private boolean isInteracting() {
+        return System.nanoTime() - lastInteractionNanos < INTERACTION_WINDOW_NANOS;
+    }
+
+    /**
+     * (Re)programme le timer pour le travail en attente le plus urgent
+     */
+    private synchronized void schedule() {
+        long frameSlot = lastFrameNanos + frameIntervalNanos;
+        long interactionEnd = lastInteractionNanos + INTERACTION_WINDOW_NANOS;
+
+        long due = Long.MAX_VALUE;
+        if (interactiveDirty != null) {
+            due = frameSlot;
+        } else if (backgroundDirty != null) {
+            // Le fond attend la fin de l'interaction
+            due = Math.max(frameSlot, interactionEnd);
+        }
+        if (!idleTasks.isEmpty()) {
+            // Les tâches ne peignent pas elles-mêmes : pas besoin d'attendre un créneau d'image
+            due = Math.min(due, interactionEnd);
+        }
+        if (due == Long.MAX_VALUE) {
+            return;
+        }
+
+        if (!timer.isRunning() || due < scheduledNanos) {
+            scheduledNanos = due;
+            // Arrondi au-dessus : le timer ne doit pas partir avant l'échéance
+            long delayNanos = Math.max(0, due - System.nanoTime());
+            timer.setInitialDelay((int) ((delayNanos + 999_999) / 1_000_000L));
+            timer.restart();
+        }
+    }
+
+    /**
+     * Applique les modifications repoussées puis peint la zone due (sur l'EDT, appelé par le timer)
+     */
+    private void flush() {
+        List<Runnable> tasks = List.of();
+        synchronized (this) {
+            if (!isInteracting() && !idleTasks.isEmpty()) {
+                tasks = new ArrayList<>(idleTasks);
+                idleTasks.clear();
+            }
+        }
+        // Hors verrou : les tâches provoquent des repaints de fond, peints dans cette même image
+        for (Runnable task : tasks) {
+            task.run();
+        }
+
+        Rectangle region = null;
+        synchronized (this) {
+            // Réveil anticipé pour des tâches : la peinture attend son créneau d'image
+            long now = System.nanoTime();
+            if (now - lastFrameNanos >= frameIntervalNanos) {
+                region = interactiveDirty;
+                interactiveDirty = null;
+                if (!isInteracting()) {
+                    region = union(region, backgroundDirty);
+                    backgroundDirty = null;
+                }
+                if (region != null) {
+                    lastFrameNanos = now;
+                }
+            }
+        }
+
+        if (region != null && target.isShowing()) {
+            long start = System.nanoTime();
+            target.paintImmediately(region);
+            long elapsed = System.nanoTime() - start;
+
+            synchronized (this) {
+                recentFrameNanos[(int) (frames % FRAME_HISTORY)] = elapsed;
+                frames++;
+                totalFrameNanos += elapsed;
+                maxFrameNanos = Math.max(maxFrameNanos, elapsed);
+            }
+        }
+
+        // Fond encore en attente si l'interaction continue, ou demandes arrivées pendant la peinture
+        schedule();
+    }
+
+    private static Rectangle union(Rectangle dirty, Rectangle region) {
+        if (region == null) {
+            return dirty;
+        }
+        return dirty == null ? new Rectangle(region) : dirty.union(region);
+    }
+}
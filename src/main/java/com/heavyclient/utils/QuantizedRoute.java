@@ -0,0 +1,115 @@
+package com.heavyclient.utils;
+
+import org.jxmapviewer.viewer.GeoPosition;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Géométrie de route compacte, stockée en coordonnées entières E7 (degrés × 10^7, ~1 cm de précision)
+ * Un seul tableau d'int entrelacé (lat, lon) : 8 octets par point au lieu d'un objet GeoPosition.
+ * Reste une {@code List<GeoPosition>} immuable : les positions sont créées à la demande.
+ */
+public class QuantizedRoute extends AbstractList<GeoPosition> implements RandomAccess {
+
+    public static final QuantizedRoute EMPTY = new QuantizedRoute(new int[0]);
+
+    private static final double SCALE = 1e7;
+
+    private final int[] coords;
+
+    private QuantizedRoute(int[] coords) {
+        this.coords = coords;
+    }
+
+    /**
+     * Quantifie une liste de positions (sans copie si elle l'est déjà)
+     */
+    public static QuantizedRoute of(List<GeoPosition> positions) {
+        if (positions instanceof QuantizedRoute) {
+            return (QuantizedRoute) positions;
+        }
+
+        int[] coords = new int[positions.size() * 2];
+        int i = 0;
+        for (GeoPosition gp : positions) {
+            coords[i++] = quantize(gp.getLatitude());
+            coords[i++] = quantize(gp.getLongitude());
+        }
+        return new QuantizedRoute(coords);
+    }
+
+    /**
+     * Construit une route à partir de {@code count} couples (lat, lon) E7 entrelacés.
+     * Le tableau est recopié s'il est plus grand que nécessaire.
+     */
+    public static QuantizedRoute fromE7(int[] coords, int count) {
+        return new QuantizedRoute(coords.length == count * 2 ? coords : Arrays.copyOf(coords, count * 2));
+    }
+
+    public static int quantize(double degrees) {
+        return (int) Math.round(degrees * SCALE);
+    }
+
+    /**
+     * Copie des points {@code [from, to)}
+     */
+    public QuantizedRoute slice(int from, int to) {
+        return new QuantizedRoute(Arrays.copyOfRange(coords, from * 2, to * 2));
+    }
+
+    /**
+     * Copie parcourue dans l'autre sens
+     */
+    public QuantizedRoute reversed() {
+        int[] reversed = new int[coords.length];
+        for (int i = 0, j = coords.length - 2; j >= 0; i += 2, j -= 2) {
+            reversed[i] = coords[j];
+            reversed[i + 1] = coords[j + 1];
+        }
+        return new QuantizedRoute(reversed);
+    }
+
+    /**
+     * Indique si le point {@code index} est identique au point {@code otherIndex} de l'autre route
+     */
+    public boolean samePoint(int index, QuantizedRoute other, int otherIndex) {
+        return coords[index * 2] == other.coords[otherIndex * 2]
+                && coords[index * 2 + 1] == other.coords[otherIndex * 2 + 1];
+    }
+
+    @Override
+    public GeoPosition get(int index) {
+        return new GeoPosition(latitude(index), longitude(index));
+    }
+
+    @Override
+    public int size() {
+        return coords.length / 2;
+    }
+
+    public double latitude(int index) {
+        return latitudeE7(index) / SCALE;
+    }
+
+    public double longitude(int index) {
+        return longitudeE7(index) / SCALE;
+    }
+
+    public int latitudeE7(int index) {
+        return coords[index * 2];
+    }
+
+    public int longitudeE7(int index) {
+        return coords[index * 2 + 1];
+    }
+
+    /**
+     * Taille mémoire approximative du stockage des coordonnées (en-têtes d'objets inclus)
+     */
+    public long sizeInBytes() {
+        return 16 + 16 + (long) coords.length * Integer.BYTES;
+    }
+}
@@ -0,0 +1,183 @@
+package com.heavyclient.utils;
+
+import org.jxmapviewer.viewer.GeoPosition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index spatial du corridor autour d'une ou plusieurs routes
+ * Découpe les tracés en cellules de grille pour savoir rapidement
+ * si un point se trouve à moins d'une certaine distance d'une des routes
+ */
+public class RouteCorridorIndex {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    private final double widthMeters;
+    private final double cosRefLat;
+    private final double[] xs;
+    private final double[] ys;
+    // linked[i] : le point i est relié au point i + 1 (même route)
+    private final boolean[] linked;
+
+    // Cellule de grille -> indices des segments (i, i + 1) qui la traversent
+    private final Map<Long, List<Integer>> cells = new HashMap<>();
+
+    /**
+     * @param route       positions GPS du tracé
+     * @param widthMeters demi-largeur du corridor en mètres
+     */
+    public RouteCorridorIndex(List<GeoPosition> route, double widthMeters) {
+        this(new QuantizedRoute[]{QuantizedRoute.of(route)}, widthMeters);
+    }
+
+    /**
+     * Corridor autour de plusieurs routes (par exemple les morceaux d'une {@link SharedRouteGeometry}) :
+     * la fin d'une route n'est pas reliée au début de la suivante.
+     *
+     * @param routes      tracés des routes
+     * @param widthMeters demi-largeur du corridor en mètres
+     */
+    public static RouteCorridorIndex ofRoutes(List<QuantizedRoute> routes, double widthMeters) {
+        return new RouteCorridorIndex(routes.toArray(new QuantizedRoute[0]), widthMeters);
+    }
+
+    private RouteCorridorIndex(QuantizedRoute[] tracks, double widthMeters) {
+        if (widthMeters <= 0) {
+            throw new IllegalArgumentException("Corridor width must be positive: " + widthMeters);
+        }
+        this.widthMeters = widthMeters;
+
+        int n = 0;
+        double latSum = 0;
+        for (QuantizedRoute track : tracks) {
+            for (int i = 0; i < track.size(); i++) {
+                latSum += track.latitude(i);
+            }
+            n += track.size();
+        }
+        this.cosRefLat = Math.cos(Math.toRadians(n > 0 ? latSum / n : 0));
+
+        // Projection équirectangulaire autour de la latitude moyenne (en mètres)
+        this.xs = new double[n];
+        this.ys = new double[n];
+        this.linked = new boolean[n];
+        int p = 0;
+        for (QuantizedRoute track : tracks) {
+            for (int i = 0; i < track.size(); i++, p++) {
+                xs[p] = projectX(track.longitude(i));
+                ys[p] = projectY(track.latitude(i));
+                linked[p] = i + 1 < track.size();
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (linked[i]) {
+                indexSegment(i);
+            } else if (i == 0 || !linked[i - 1]) {
+                // Route réduite à un point
+                addToCell(cellKey(xs[i], ys[i]), i);
+            }
+        }
+    }
+
+    /**
+     * Indique si la position est à moins de la largeur du corridor
+     */
+    public boolean contains(double latitude, double longitude) {
+        return distanceMeters(latitude, longitude) <= widthMeters;
+    }
+
+    /**
+     * Distance en mètres entre la position et le segment de route le plus proche.
+     * Retourne {@link Double#POSITIVE_INFINITY} si aucun segment n'est dans le voisinage du corridor.
+     */
+    public double distanceMeters(double latitude, double longitude) {
+        double px = projectX(longitude);
+        double py = projectY(latitude);
+        long cx = cellCoord(px);
+        long cy = cellCoord(py);
+
+        // Un point du corridor est au plus à 1,5 cellule d'un échantillon indexé
+        double best = Double.POSITIVE_INFINITY;
+        for (long dx = -2; dx <= 2; dx++) {
+            for (long dy = -2; dy <= 2; dy++) {
+                List<Integer> segments = cells.get(key(cx + dx, cy + dy));
+                if (segments == null) continue;
+
+                for (int i : segments) {
+                    best = Math.min(best, distanceToSegment(px, py, i));
+                }
+            }
+        }
+        return best;
+    }
+
+    public double getWidthMeters() {
+        return widthMeters;
+    }
+
+    public boolean isEmpty() {
+        return xs.length == 0;
+    }
+
+    /**
+     * Échantillonne le segment tous les {@code widthMeters} et l'enregistre dans chaque cellule traversée
+     */
+    private void indexSegment(int i) {
+        double dx = xs[i + 1] - xs[i];
+        double dy = ys[i + 1] - ys[i];
+        int steps = (int) Math.ceil(Math.hypot(dx, dy) / widthMeters);
+
+        for (int s = 0; s <= steps; s++) {
+            double t = steps == 0 ? 0 : (double) s / steps;
+            addToCell(cellKey(xs[i] + t * dx, ys[i] + t * dy), i);
+        }
+    }
+
+    private void addToCell(long key, int segment) {
+        List<Integer> segments = cells.computeIfAbsent(key, k -> new ArrayList<>(2));
+        if (segments.isEmpty() || segments.get(segments.size() - 1) != segment) {
+            segments.add(segment);
+        }
+    }
+
+    private double distanceToSegment(double px, double py, int i) {
+        if (!linked[i]) {
+            return Math.hypot(px - xs[i], py - ys[i]);
+        }
+
+        double ax = xs[i], ay = ys[i];
+        double dx = xs[i + 1] - ax;
+        double dy = ys[i + 1] - ay;
+        double lenSq = dx * dx + dy * dy;
+
+        double t = lenSq == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lenSq;
+        t = Math.max(0, Math.min(1, t));
+
+        return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+    }
+
+    private double projectX(double longitude) {
+        return Math.toRadians(longitude) * EARTH_RADIUS_METERS * cosRefLat;
+    }
+
+    private double projectY(double latitude) {
+        return Math.toRadians(latitude) * EARTH_RADIUS_METERS;
+    }
+
+    private long cellCoord(double meters) {
+        return (long) Math.floor(meters / widthMeters);
+    }
+
+    private long cellKey(double x, double y) {
+        return key(cellCoord(x), cellCoord(y));
+    }
+
+    private static long key(long cx, long cy) {
+        return (cx << 32) ^ (cy & 0xffffffffL);
+    }
+}
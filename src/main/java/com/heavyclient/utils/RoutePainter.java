@@ -3,10 +3,11 @@ package com.heavyclient.utils;
 import org.jxmapviewer.JXMapViewer;
 import org.jxmapviewer.painter.Painter;
 import org.jxmapviewer.viewer.GeoPosition;
+import org.jxmapviewer.viewer.TileFactoryInfo;
+import org.jxmapviewer.viewer.util.GeoUtil;
 
 import java.awt.*;
 import java.awt.geom.Point2D;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -15,12 +16,12 @@ import java.util.List;
  */
 public class RoutePainter implements Painter<JXMapViewer> {
 
-    private final List<GeoPosition> track;
+    private final QuantizedRoute track;
     private Color color = Color.RED;
     private boolean antiAlias = true;
 
     public RoutePainter(List<GeoPosition> track) {
-        this.track = new ArrayList<>(track);
+        this.track = QuantizedRoute.of(track);
     }
 
     @Override
@@ -56,9 +57,12 @@ public class RoutePainter implements Painter<JXMapViewer> {
         int lastX = 0, lastY = 0;
         boolean first = true;
 
-        for (GeoPosition gp : track) {
-            // Conversion GPS → pixels
-            Point2D pt = map.getTileFactory().geoToPixel(gp, map.getZoom());
+        TileFactoryInfo info = map.getTileFactory().getInfo();
+        int zoom = map.getZoom();
+
+        for (int i = 0; i < track.size(); i++) {
+            // Conversion GPS → pixels, directement depuis les coordonnées quantifiées
+            Point2D pt = GeoUtil.getBitmapCoordinate(track.latitude(i), track.longitude(i), zoom, info);
 
             if (!first) {
                 g.drawLine(lastX, lastY, (int) pt.getX(), (int) pt.getY());
@@ -4,30 +4,34 @@ import com.soap.generated.*;
 import jakarta.xml.bind.JAXBElement;
 import org.jxmapviewer.viewer.GeoPosition;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class RouteUtils {
 
+    /**
+     * Extrait la géométrie de l'itinéraire, stockée sous forme quantifiée E7 (voir {@link QuantizedRoute})
+     */
     public static List<GeoPosition> extractRoute(ItineraryData data) {
-        List<GeoPosition> list = new ArrayList<>();
-
         Geometry geometry = data.getGeometry() != null ? data.getGeometry().getValue() : null;
-        if (geometry == null) return list;
+        if (geometry == null) return QuantizedRoute.EMPTY;
 
         JAXBElement<ArrayOfArrayOfdouble> coordsElement = geometry.getCoordinates();
-        if (coordsElement == null || coordsElement.getValue() == null) return list;
+        if (coordsElement == null || coordsElement.getValue() == null) return QuantizedRoute.EMPTY;
 
         ArrayOfArrayOfdouble arrays = coordsElement.getValue();
         List<ArrayOfdouble> arrayList = arrays.getArrayOfdouble();
 
+        int[] coords = new int[arrayList.size() * 2];
+        int count = 0;
         for (ArrayOfdouble array : arrayList) {
             List<Double> doubles = array.getDouble();
             if (doubles.size() >= 2) {
-                list.add(new GeoPosition(doubles.get(0), doubles.get(1)));
+                coords[count * 2] = QuantizedRoute.quantize(doubles.get(0));
+                coords[count * 2 + 1] = QuantizedRoute.quantize(doubles.get(1));
+                count++;
             }
         }
 
-        return list;
+        return QuantizedRoute.fromE7(coords, count);
     }
 }
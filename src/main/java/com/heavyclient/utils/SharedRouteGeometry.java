@@ -0,0 +1,209 @@
+package com.heavyclient.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Géométrie de plusieurs routes dont les portions communes ne sont stockées qu'une fois
+ * Les débuts communs (même origine) puis les fins communes (même destination) sont détectés
+ * point par point, et chaque route devient une suite de morceaux partagés ou propres.
+ * Deux morceaux consécutifs d'une route partagent leur point de jonction.
+ */
+public class SharedRouteGeometry {
+
+    private final List<QuantizedRoute> pieces = new ArrayList<>();
+    private final List<Integer> usage = new ArrayList<>();
+    private final List<List<Integer>> routePieces = new ArrayList<>();
+    private final long totalVertices;
+
+    public SharedRouteGeometry(List<QuantizedRoute> routes) {
+        long vertices = 0;
+        for (QuantizedRoute route : routes) {
+            vertices += route.size();
+            routePieces.add(new ArrayList<>());
+        }
+        this.totalVertices = vertices;
+
+        // 1) Débuts communs
+        Split prefixes = Split.of(routes.toArray(new QuantizedRoute[0]));
+        List<Integer> prefixIds = register(prefixes, false);
+
+        // 2) Fins communes, cherchées comme des débuts communs sur les restes inversés
+        List<Integer> withTail = new ArrayList<>();
+        List<QuantizedRoute> reversedTails = new ArrayList<>();
+        for (int r = 0; r < routes.size(); r++) {
+            for (int local : prefixes.prefixIds.get(r)) {
+                routePieces.get(r).add(prefixIds.get(local));
+            }
+            QuantizedRoute tail = prefixes.rest[r];
+            if (tail != null && tail.size() >= 2) {
+                withTail.add(r);
+                reversedTails.add(tail.reversed());
+            }
+        }
+
+        Split suffixes = Split.of(reversedTails.toArray(new QuantizedRoute[0]));
+        List<Integer> suffixIds = register(suffixes, true);
+
+        for (int t = 0; t < withTail.size(); t++) {
+            List<Integer> ids = routePieces.get(withTail.get(t));
+
+            QuantizedRoute middle = suffixes.rest[t];
+            if (middle != null && middle.size() >= 2) {
+                ids.add(add(middle.reversed(), 1));
+            }
+
+            List<Integer> suffixLocal = suffixes.prefixIds.get(t);
+            for (int i = suffixLocal.size() - 1; i >= 0; i--) {
+                ids.add(suffixIds.get(suffixLocal.get(i)));
+            }
+        }
+    }
+
+    public int getRouteCount() {
+        return routePieces.size();
+    }
+
+    public List<QuantizedRoute> getPieces() {
+        return pieces;
+    }
+
+    /**
+     * Nombre de routes qui passent par le morceau
+     */
+    public int getUsage(int piece) {
+        return usage.get(piece);
+    }
+
+    /**
+     * Indices des morceaux composant la route, dans l'ordre du trajet
+     */
+    public List<Integer> getRoutePieces(int route) {
+        return routePieces.get(route);
+    }
+
+    /**
+     * Points de toutes les routes si elles étaient stockées séparément
+     */
+    public long getTotalVertices() {
+        return totalVertices;
+    }
+
+    /**
+     * Points réellement stockés
+     */
+    public long getStoredVertices() {
+        long stored = 0;
+        for (QuantizedRoute piece : pieces) {
+            stored += piece.size();
+        }
+        return stored;
+    }
+
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (QuantizedRoute piece : pieces) {
+            bytes += piece.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private List<Integer> register(Split split, boolean reverse) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < split.pieces.size(); i++) {
+            QuantizedRoute piece = split.pieces.get(i);
+            ids.add(add(reverse ? piece.reversed() : piece, split.usage.get(i)));
+        }
+        return ids;
+    }
+
+    private int add(QuantizedRoute piece, int routes) {
+        pieces.add(piece);
+        usage.add(routes);
+        return pieces.size() - 1;
+    }
+
+    /**
+     * Découpage d'un ensemble de séquences en débuts communs (arbre de préfixes compressé)
+     * et en restes propres à chaque séquence
+     */
+    private static class Split {
+
+        final List<QuantizedRoute> pieces = new ArrayList<>();
+        final List<Integer> usage = new ArrayList<>();
+        final List<List<Integer>> prefixIds = new ArrayList<>();
+        final QuantizedRoute[] rest;
+
+        private Split(int count) {
+            rest = new QuantizedRoute[count];
+            for (int i = 0; i < count; i++) {
+                prefixIds.add(new ArrayList<>());
+            }
+        }
+
+        static Split of(QuantizedRoute[] routes) {
+            Split split = new Split(routes.length);
+            List<Integer> all = new ArrayList<>();
+            for (int i = 0; i < routes.length; i++) {
+                all.add(i);
+            }
+            if (!all.isEmpty()) {
+                split.group(routes, all, 0);
+            }
+            return split;
+        }
+
+        /**
+         * Les routes du groupe ont les points {@code [0, offset)} en commun
+         */
+        private void group(QuantizedRoute[] routes, List<Integer> group, int offset) {
+            if (group.size() == 1) {
+                int r = group.get(0);
+                rest[r] = routes[r].size() > offset ? routes[r].slice(Math.max(0, offset - 1), routes[r].size()) : null;
+                return;
+            }
+
+            // Prolonge la partie commune tant que toutes les routes du groupe coïncident
+            QuantizedRoute first = routes[group.get(0)];
+            int end = offset;
+            while (allMatch(routes, group, first, end)) {
+                end++;
+            }
+
+            int from = Math.max(0, offset - 1);
+            if (end - from >= 2) {
+                pieces.add(first.slice(from, end));
+                usage.add(group.size());
+                for (int r : group) {
+                    prefixIds.get(r).add(pieces.size() - 1);
+                }
+            }
+
+            // Les routes divergent au point end : on les regroupe par point suivant
+            Map<Long, List<Integer>> branches = new HashMap<>();
+            for (int r : group) {
+                if (routes[r].size() > end) {
+                    long key = ((long) routes[r].latitudeE7(end) << 32) ^ (routes[r].longitudeE7(end) & 0xffffffffL);
+                    branches.computeIfAbsent(key, k -> new ArrayList<>()).add(r);
+                }
+            }
+            for (List<Integer> branch : branches.values()) {
+                group(routes, branch, end);
+            }
+        }
+
+        private static boolean allMatch(QuantizedRoute[] routes, List<Integer> group, QuantizedRoute first, int index) {
+            if (index >= first.size()) {
+                return false;
+            }
+            for (int r : group) {
+                if (routes[r].size() <= index || !routes[r].samePoint(index, first, index)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.heavyclient.utils;
+
+import org.jxmapviewer.JXMapViewer;
+import org.jxmapviewer.painter.Painter;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dessine plusieurs routes comparées à partir de leur géométrie partagée
+ * Chaque portion commune n'est dessinée qu'une fois ; les portions propres à une route
+ * prennent sa couleur et un léger décalage pour rester lisibles là où les routes se séparent
+ */
+public class SharedRoutePainter implements Painter<JXMapViewer> {
+
+    private static final Color SHARED_COLOR = Color.BLUE;
+    private static final int ROUTE_OFFSET_PX = 3;
+
+    private final List<RoutePainter> sharedPainters = new ArrayList<>();
+    private final List<RoutePainter> ownPainters = new ArrayList<>();
+    private final List<Point> ownOffsets = new ArrayList<>();
+
+    /**
+     * @param geometry géométrie dédupliquée des routes
+     * @param colors   couleur de chaque route, dans l'ordre des routes
+     */
+    public SharedRoutePainter(SharedRouteGeometry geometry, List<Color> colors) {
+        List<QuantizedRoute> pieces = geometry.getPieces();
+        int routes = geometry.getRouteCount();
+
+        for (int p = 0; p < pieces.size(); p++) {
+            if (geometry.getUsage(p) > 1) {
+                RoutePainter painter = new RoutePainter(pieces.get(p));
+                painter.setColor(SHARED_COLOR);
+                sharedPainters.add(painter);
+            }
+        }
+
+        for (int r = 0; r < routes; r++) {
+            // Décalage centré autour du tracé commun
+            int offset = (int) Math.round((r - (routes - 1) / 2.0) * ROUTE_OFFSET_PX);
+
+            for (int p : geometry.getRoutePieces(r)) {
+                if (geometry.getUsage(p) == 1) {
+                    RoutePainter painter = new RoutePainter(pieces.get(p));
+                    painter.setColor(colors.get(r % colors.size()));
+                    ownPainters.add(painter);
+                    ownOffsets.add(new Point(offset, offset));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void paint(Graphics2D g, JXMapViewer map, int w, int h) {
+        for (int i = 0; i < ownPainters.size(); i++) {
+            Graphics2D shifted = (Graphics2D) g.create();
+            shifted.translate(ownOffsets.get(i).x, ownOffsets.get(i).y);
+            ownPainters.get(i).paint(shifted, map, w, h);
+            shifted.dispose();
+        }
+
+        // Le tronc commun par-dessus, dessiné une seule fois
+        for (RoutePainter painter : sharedPainters) {
+            painter.paint(g, map, w, h);
+        }
+    }
+}